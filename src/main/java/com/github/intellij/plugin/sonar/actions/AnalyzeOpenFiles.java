@@ -26,13 +26,10 @@ import java.util.List;
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.compiler.CompileScope;
-import com.intellij.openapi.compiler.CompilerManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.ToolWindow;
-import com.intellij.util.Consumer;
 import com.github.intellij.plugin.sonar.common.IdeaUtils;
 import com.github.intellij.plugin.sonar.core.AnalyzeScope;
 import com.github.intellij.plugin.sonar.core.AnalyzeState;
@@ -47,11 +44,6 @@ public class AnalyzeOpenFiles extends AbstractAnalyzeAction {
             @NotNull ToolWindow toolWindow,
             @NotNull AnalyzeState state) {
         new SonarScannerStarter(project, ResourcesLoader.getString("task.analysis.title", project.getName())) {
-            @Override
-            protected void createCompileScope(@NotNull CompilerManager compilerManager, @NotNull Consumer<CompileScope> consumer) {
-                consumer.consume(compilerManager.createProjectCompileScope(project));
-            }
-
             @Override
             protected AnalyzeScope createAnalyzeScope() {
                 return ApplicationManager.getApplication().runReadAction((Computable<AnalyzeScope>) () ->
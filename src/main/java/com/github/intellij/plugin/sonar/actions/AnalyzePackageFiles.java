@@ -26,8 +26,6 @@ import java.util.Arrays;
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.compiler.CompileScope;
-import com.intellij.openapi.compiler.CompilerManager;
 import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Computable;
@@ -36,7 +34,6 @@ import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.impl.file.PsiDirectoryFactory;
-import com.intellij.util.Consumer;
 import com.github.intellij.plugin.sonar.common.IdeaUtils;
 import com.github.intellij.plugin.sonar.core.AnalyzeScope;
 import com.github.intellij.plugin.sonar.core.AnalyzeState;
@@ -51,11 +48,6 @@ public class AnalyzePackageFiles extends AbstractAnalyzeAction {
             @NotNull ToolWindow toolWindow,
             @NotNull AnalyzeState state) {
         new SonarScannerStarter(project, ResourcesLoader.getString("task.analysis.title", project.getName())) {
-            @Override
-            protected void createCompileScope(@NotNull CompilerManager compilerManager, @NotNull Consumer<CompileScope> consumer) {
-                consumer.consume(compilerManager.createProjectCompileScope(project));
-            }
-
             @Override
             protected AnalyzeScope createAnalyzeScope() {
                 return ApplicationManager.getApplication().runReadAction(
@@ -24,11 +24,8 @@ package com.github.intellij.plugin.sonar.actions;
 
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
 import com.intellij.openapi.actionSystem.AnActionEvent;
-import com.intellij.openapi.compiler.CompileScope;
-import com.intellij.openapi.compiler.CompilerManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.wm.ToolWindow;
-import com.intellij.util.Consumer;
 import com.github.intellij.plugin.sonar.core.AnalyzeScope;
 import com.github.intellij.plugin.sonar.core.AnalyzeState;
 import com.github.intellij.plugin.sonar.core.SonarScannerStarter;
@@ -64,11 +61,6 @@ public abstract class AnalyzeProjectFiles extends AbstractAnalyzeAction {
             @NotNull final AnalyzeState state
     ) {
         new SonarScannerStarter(project, ResourcesLoader.getString("task.analysis.title", project.getName())) {
-            @Override
-            protected void createCompileScope(@NotNull CompilerManager compilerManager, @NotNull Consumer<CompileScope> consumer) {
-                consumer.consume(compilerManager.createProjectCompileScope(project));
-            }
-
             @Override
             protected AnalyzeScope createAnalyzeScope() {
                 return new AnalyzeScope(project, AnalyzeScope.ScopeType.PROJECT_FILES);
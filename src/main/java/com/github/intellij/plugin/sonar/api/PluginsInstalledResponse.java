@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.api;
+
+import java.util.List;
+
+public class PluginsInstalledResponse {
+    private List<Plugin> plugins;
+
+    public List<Plugin> getPlugins() {
+        return plugins;
+    }
+
+    public void setPlugins(List<Plugin> plugins) {
+        this.plugins = plugins;
+    }
+
+    public static class Plugin {
+        private String key;
+        private String version;
+        private String hash;
+        private long updatedAt;
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public void setVersion(String version) {
+            this.version = version;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+
+        public long getUpdatedAt() {
+            return updatedAt;
+        }
+
+        public void setUpdatedAt(long updatedAt) {
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -72,6 +72,7 @@ public class RulesSearchResponse {
         private String repo;
         private String severity;
         private String type;
+        private String lang;
 
         public String getHtmlDesc() {
             return htmlDesc;
@@ -120,5 +121,13 @@ public class RulesSearchResponse {
         public void setType(String type) {
             this.type = type;
         }
+
+        public String getLang() {
+            return lang;
+        }
+
+        public void setLang(String lang) {
+            this.lang = lang;
+        }
     }
 }
@@ -34,6 +34,9 @@ public interface SonarApi {
     @GET("/api/qualityprofiles/search?defaults=true")
     Call<QualityProfilesSearchResponse> qualityProfilesSearch();
 
-    @GET("/api/rules/search?activation=true&ps=500&f=repo,name,htmlDesc,params,severity")
+    @GET("/api/rules/search?activation=true&ps=500&f=repo,name,htmlDesc,params,severity,lang")
     Call<RulesSearchResponse> rulesSearch(@Query("qprofile") String profileKey, @Query("p") int page);
+
+    @GET("/api/plugins/installed")
+    Call<PluginsInstalledResponse> pluginsInstalled();
 }
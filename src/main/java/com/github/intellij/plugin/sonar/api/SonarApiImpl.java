@@ -113,6 +113,24 @@ public class SonarApiImpl {
         }
     }
 
+    /**
+     * @return 服务器已安装插件的索引, 按插件key排序, 插件安装、升级或卸载后内容不同
+     */
+    public String getInstalledPluginsIndex() throws ApiRequestFailedException {
+        try {
+            PluginsInstalledResponse pluginsInstalledResponse = sonarApi.pluginsInstalled().execute().body();
+            if (pluginsInstalledResponse == null || pluginsInstalledResponse.getPlugins() == null) {
+                throw new ApiRequestFailedException("The installed plugins empty");
+            }
+            return pluginsInstalledResponse.getPlugins().stream()
+                    .map(n -> n.getKey() + ":" + n.getVersion() + ":" + n.getHash() + ":" + n.getUpdatedAt())
+                    .sorted()
+                    .collect(Collectors.joining(","));
+        } catch (IOException e) {
+            throw new ApiRequestFailedException("The installed plugins search failed:" + e.getMessage(), e);
+        }
+    }
+
     public static NavigationGlobalResponse checkConnection(String url, String token) throws ApiRequestFailedException, AuthorizationException {
         try {
             OkHttpClient.Builder httpClient = new OkHttpClient.Builder();
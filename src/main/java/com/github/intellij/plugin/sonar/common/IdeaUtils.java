@@ -26,7 +26,10 @@ import java.io.File;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -61,6 +64,8 @@ import com.intellij.openapi.roots.OrderEnumerator;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vcs.changes.ChangeListManager;
 import com.intellij.openapi.vcs.changes.ChangeListManagerEx;
@@ -91,6 +96,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public final class IdeaUtils {
+    private static final Key<Pair<Long, List<String>>> MODULE_CLASS_PATH_KEY = Key.create("SonarAnalyzer.moduleClassPath");
     private static final Pattern JAVA_VERSION_PATTERN = Pattern.compile("java\\s+version\\s+\"(.+?)\"");
     private static final Set<FileType> SUPPORTED_FILE_TYPES;
 
@@ -474,27 +480,45 @@ public final class IdeaUtils {
     }
 
     public static String getFullClassPath(Project project) {
-        String fullClassPath;
+        return getClassPath(project, Arrays.asList(ModuleManager.getInstance(project).getModules()));
+    }
+
+    /**
+     * @return 模块及其依赖的模块用到的所有jar, 以逗号分隔
+     */
+    public static String getClassPath(Project project, Collection<Module> modules) {
         if (EventQueue.isDispatchThread()) {
-            fullClassPath = OrderEnumerator.orderEntries(project).recursively().getPathsList().getPathsString();
-        } else {
-            fullClassPath = ApplicationManager.getApplication().runReadAction((Computable<String>)() ->
-                    OrderEnumerator.orderEntries(project).recursively().getPathsList().getPathsString()
-            );
+            return getClassPathImpl(project, modules);
         }
-        String splitChar;
-        if (fullClassPath.indexOf(";") > -1) {
-            splitChar = ";";
-        } else {
-            splitChar = ":";
+        return ApplicationManager.getApplication().runReadAction((Computable<String>) () -> getClassPathImpl(project, modules));
+    }
+
+    private static String getClassPathImpl(Project project, Collection<Module> modules) {
+        long modificationCount = ProjectRootManager.getInstance(project).getModificationCount();
+        Set<String> ret = new LinkedHashSet<>();
+        for (Module module : modules) {
+            ret.addAll(getModuleClassPath(module, modificationCount));
+        }
+        return String.join(",", ret);
+    }
+
+    /**
+     * 模块的jar列表缓存在模块上, 项目的依赖配置变化(修改计数变化)时重新计算
+     */
+    private static List<String> getModuleClassPath(Module module, long modificationCount) {
+        Pair<Long, List<String>> cached = module.getUserData(MODULE_CLASS_PATH_KEY);
+        if (cached != null && cached.first == modificationCount) {
+            return cached.second;
         }
         List<String> ret = new ArrayList<>();
-        Arrays.stream(fullClassPath.split(splitChar)).forEach(n -> {
-            if (n.endsWith(".jar")) {
-                ret.add(n);
+        for (String path : OrderEnumerator.orderEntries(module).recursively().getPathsList().getPathList()) {
+            if (path.endsWith(".jar")) {
+                ret.add(path);
             }
-        });
-        return String.join(",", ret);
+        }
+        List<String> classPath = Collections.unmodifiableList(ret);
+        module.putUserData(MODULE_CLASS_PATH_KEY, Pair.create(modificationCount, classPath));
+        return classPath;
     }
 
     public static String getAllCompilerOutputPath(Project project) {
@@ -520,6 +544,24 @@ public final class IdeaUtils {
         return String.join(",", ret);
     }
 
+    /**
+     * 需要在读操作中调用
+     *
+     * @return 模块及其直接或间接依赖的模块的编译输出目录
+     */
+    public static String getCompilerOutputPathWithDependencies(Collection<Module> modules) {
+        Set<String> ret = new LinkedHashSet<>();
+        for (Module module : modules) {
+            ret.add(getAllCompilerOutputPath(module));
+            OrderEnumerator.orderEntries(module).recursively().withoutSdk().withoutLibraries().forEachModule(dependency -> {
+                ret.add(getAllCompilerOutputPath(dependency));
+                return true;
+            });
+        }
+        ret.remove("");
+        return String.join(",", ret);
+    }
+
     public static String getAllCompilerOutputPath(Project project, List<VirtualFile> files) {
         Set<String> ret = new HashSet<>();
         for (VirtualFile virtualFile : files) {
@@ -599,9 +641,11 @@ public final class IdeaUtils {
     }
 
     public static String getPath(PsiFile psiFile) {
-        String projectPath = psiFile.getProject().getBasePath();
-        String psiFilePath = psiFile.getVirtualFile().getPath();
-        return Paths.relativeIfUnder(psiFilePath, projectPath);
+        return getPath(psiFile.getProject(), psiFile.getVirtualFile());
+    }
+
+    public static String getPath(Project project, VirtualFile virtualFile) {
+        return Paths.relativeIfUnder(virtualFile.getPath(), project.getBasePath());
     }
 
     public static String getProjectSdkVersion(Project project) {
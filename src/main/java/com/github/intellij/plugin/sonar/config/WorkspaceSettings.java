@@ -59,6 +59,18 @@ public final class WorkspaceSettings implements PersistentStateComponent<Workspa
     @Tag
     public String uiLanguageLocale = "zh";
 
+    /**
+     * 使用列式存储保存报告中的问题, 适用于问题数量非常多的报告
+     */
+    @Tag
+    public boolean columnarIssueStore = false;
+
+    /**
+     * 分析整个项目时按模块分组并行执行的最大数量, 不大于1时不分组
+     */
+    @Tag
+    public int analysisConcurrency = 1;
+
 
     @Tag("sonarQubeConnections")
     @AbstractCollection(surroundWithTag = false, elementTag = Constants.SET)
@@ -23,24 +23,26 @@ package com.github.intellij.plugin.sonar.core;
 
 import com.github.intellij.plugin.sonar.gui.common.UIUtils;
 import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.RangeMarker;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDeclarationStatement;
-import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiWhiteSpace;
+import org.jetbrains.annotations.Nullable;
 
 public abstract class AbstractIssue {
-    protected PsiFile psiFile;
-    protected String ruleRepository;
-    protected String ruleKey;
+    // 只保存VirtualFile, PsiFile和PsiElement在使用时再查找, 避免报告一直持有所有文件的PSI树
+    protected Project project;
+    protected VirtualFile virtualFile;
+    protected RuleInfo ruleInfo;
     protected String msg;
-    protected String severity;
-    protected String type;
-    protected String name;
-    protected String htmlDesc;
+    protected Severity severity;
 
-    protected PsiElement psiElement;
     protected int lineStart;
     protected int lineEnd;
 //    protected TextRange textRange;
@@ -49,59 +51,94 @@ public abstract class AbstractIssue {
 
     protected boolean fixed;
 
+    /**
+     * 由{@link IssueStore}创建时对应的存储和行号, 修复状态保存在存储中
+     */
+    private IssueStore store;
+    private int row = -1;
+
+    /**
+     * 第一次计算出问题代码范围时在文档中创建, 之后随编辑自动移动, 不再重新计算.
+     * 只有文档已加载且实际用到位置时才创建, 未打开的文件中的问题不持有标记.
+     * 由{@link IssueStore}创建的问题对象每次访问都是新的, 标记和下面的状态保存在存储中
+     */
+    private volatile RangeMarker rangeMarker;
+    /**
+     * 问题代码已经被整段删除, 或文件在分析后已被修改而无法确定问题的位置, 问题可能已经修复
+     */
+    private volatile boolean possiblyFixed;
+    /**
+     * 创建问题时文件在磁盘上的时间戳, 用来判断文件内容是否仍是分析时的内容
+     */
+    private long analyzedTimeStamp;
+
     public AbstractIssue(
-            PsiFile psiFile,
-            String ruleRepository,
-            String ruleKey,
+            Project project,
+            VirtualFile virtualFile,
+            RuleInfo ruleInfo,
             String msg,
-            String severity,
-            String type,
-            String name,
-            String htmlDesc) {
-        this.psiFile = psiFile;
-        this.ruleRepository = ruleRepository;
-        this.ruleKey = ruleKey;
+            Severity severity) {
+        this.project = project;
+        this.virtualFile = virtualFile;
+        this.ruleInfo = ruleInfo;
         this.msg = msg;
         this.severity = severity;
-        this.type = type;
-        this.name = name;
-        this.htmlDesc = htmlDesc;
+        this.analyzedTimeStamp = virtualFile.getTimeStamp();
+    }
+
+    public Project getProject() {
+        return project;
     }
 
+    public VirtualFile getVirtualFile() {
+        return virtualFile;
+    }
+
+    /**
+     * 需要在读操作中调用
+     */
+    @Nullable
     public PsiFile getPsiFile() {
-        return psiFile;
+        if (project.isDisposed() || !virtualFile.isValid()) {
+            return null;
+        }
+        return PsiManager.getInstance(project).findFile(virtualFile);
+    }
+
+    public RuleInfo getRuleInfo() {
+        return ruleInfo;
     }
 
     public String getRuleRepository() {
-        return ruleRepository;
+        return ruleInfo.getRepository();
     }
 
     public String getRuleKey() {
-        return ruleKey;
+        return ruleInfo.getKey();
     }
 
     public String getMsg() {
         return msg;
     }
 
-    public String getSeverity() {
+    public Severity getSeverity() {
         return severity;
     }
 
-    public String getType() {
-        return type;
+    public IssueType getType() {
+        return ruleInfo.getType();
     }
 
     public String getTypeDesc() {
-        return UIUtils.typeInfo(type).first;
+        return UIUtils.typeInfo(getType()).first;
     }
 
     public String getName() {
-        return name;
+        return ruleInfo.getName();
     }
 
     public String getHtmlDesc() {
-        return htmlDesc;
+        return ruleInfo.getHtmlDesc();
     }
 
     public int getLineStart() {
@@ -113,16 +150,119 @@ public abstract class AbstractIssue {
     }
 
     public boolean isFixed() {
-        return fixed;
+        return store != null ? store.isFixed(row) : fixed;
     }
 
     public void setFixed(boolean fixed) {
         this.fixed = fixed;
+        if (store != null) {
+            store.setFixed(row, fixed);
+        }
+    }
+
+    void attach(IssueStore store, int row, boolean fixed, long analyzedTimeStamp) {
+        this.store = store;
+        this.row = row;
+        this.fixed = fixed;
+        this.analyzedTimeStamp = analyzedTimeStamp;
+    }
+
+    long getAnalyzedTimeStamp() {
+        return analyzedTimeStamp;
     }
 
+    /**
+     * 从快照恢复时使用保存时的时间戳, 文件在分析之后被修改过则不再按报告中的行号定位
+     */
+    void setAnalyzedTimeStamp(long analyzedTimeStamp) {
+        this.analyzedTimeStamp = analyzedTimeStamp;
+    }
+
+    /**
+     * 需要在读操作中调用
+     *
+     * @return 问题代码在当前文档中的范围. 文件没有文档(二进制、过大或已删除), 或第一次计算位置时文件已在分析后被修改,
+     * 无法确定位置时返回null
+     */
+    @Nullable
     public TextRange getTextRange() {
-        Document document = PsiDocumentManager.getInstance(psiFile.getProject()).getDocument(psiFile);
+        Document document = FileDocumentManager.getInstance().getDocument(virtualFile);
+        if (document == null) {
+            return null;
+        }
+        RangeMarker marker = getRangeMarker();
+        if (marker != null && marker.getDocument() == document) {
+            if (marker.isValid() && marker.getStartOffset() < marker.getEndOffset()) {
+                return new TextRange(marker.getStartOffset(), marker.getEndOffset());
+            }
+            // 标记的范围已被全部删除
+            setPossiblyFixed();
+            return marker.isValid() ? new TextRange(marker.getStartOffset(), marker.getEndOffset()) : null;
+        }
+        // 同一行的问题对象可能有多个, 由存储创建时在存储上加锁
+        synchronized (store != null ? store : this) {
+            marker = getRangeMarker();
+            if (marker != null && marker.getDocument() == document) {
+                return new TextRange(marker.getStartOffset(), marker.getEndOffset());
+            }
+            if (!isAnalyzedContent(document)) {
+                // 报告中的行号对应分析时的内容, 在已修改的文档中会指向错误的位置
+                setPossiblyFixed();
+                return null;
+            }
+            TextRange textRange = computeTextRange(document);
+            if (!textRange.isEmpty()) {
+                setRangeMarker(document.createRangeMarker(textRange));
+            }
+            return textRange;
+        }
+    }
+
+    private RangeMarker getRangeMarker() {
+        return store != null ? store.getRangeMarker(row) : rangeMarker;
+    }
+
+    private void setRangeMarker(RangeMarker rangeMarker) {
+        if (store != null) {
+            store.setRangeMarker(row, rangeMarker);
+        } else {
+            this.rangeMarker = rangeMarker;
+        }
+    }
+
+    private void setPossiblyFixed() {
+        if (store != null) {
+            store.setPossiblyFixed(row);
+        } else {
+            possiblyFixed = true;
+        }
+    }
+
+    /**
+     * @return 文档内容是否仍是分析时磁盘上的内容
+     */
+    private boolean isAnalyzedContent(Document document) {
+        return virtualFile.isValid()
+                && virtualFile.getTimeStamp() == analyzedTimeStamp
+                && !FileDocumentManager.getInstance().isDocumentUnsaved(document);
+    }
 
+    /**
+     * @return 问题代码是否已在编辑器中被整段删除, 只对已经计算过位置的问题有效
+     */
+    public boolean isPossiblyFixed() {
+        if (store != null ? store.isPossiblyFixed(row) : possiblyFixed) {
+            return true;
+        }
+        RangeMarker marker = getRangeMarker();
+        if (marker != null && (!marker.isValid() || marker.getStartOffset() >= marker.getEndOffset())) {
+            setPossiblyFixed();
+            return true;
+        }
+        return false;
+    }
+
+    private TextRange computeTextRange(Document document) {
         PsiElement element = getPsiElement();
         TextRange textRange = element.getTextRange();
         int elementLineStart = document.getLineNumber(textRange.getStartOffset());
@@ -150,17 +290,15 @@ public abstract class AbstractIssue {
     }
 
 
+    @Nullable
     public PsiElement getTextRangePsiElement() {
         TextRange textRange = getTextRange();
-        return getPsiElement(textRange.getStartOffset());
+        return textRange == null ? null : getPsiElement(textRange.getStartOffset());
     }
 
     protected PsiElement getPsiElement() {
-        if (psiElement != null) {
-            return psiElement;
-        }
-
-        Document document = PsiDocumentManager.getInstance(psiFile.getProject()).getDocument(psiFile);
+        PsiFile psiFile = getPsiFile();
+        Document document = FileDocumentManager.getInstance().getDocument(virtualFile);
 
         int line = lineStart - 1;
         // Sonar可能会对整个文件提示问题，这种情况下lineStart=0，需要额外处理
@@ -174,16 +312,13 @@ public abstract class AbstractIssue {
         PsiElement findPsiElement = psiFile.findElementAt(psiElementOffset);
 
         if (findPsiElement instanceof PsiWhiteSpace) {
-            psiElement = findPsiElement.getNextSibling();
-        } else {
-            psiElement = findPsiElement;
+            return findPsiElement.getNextSibling();
         }
-
-        return psiElement;
+        return findPsiElement;
     }
 
     protected PsiElement getPsiElement(int offset) {
-        PsiElement findPsiElement = psiFile.findElementAt(offset);
+        PsiElement findPsiElement = getPsiFile().findElementAt(offset);
         if (findPsiElement instanceof PsiWhiteSpace) {
             PsiElement nextSibling = findPsiElement.getNextSibling();
             if (nextSibling != null) {
@@ -21,14 +21,22 @@
 
 package com.github.intellij.plugin.sonar.core;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.github.intellij.plugin.sonar.common.IdeaUtils;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.compiler.CompileScope;
+import com.intellij.openapi.compiler.CompilerManager;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
 
 public class AnalyzeScope {
     private ScopeType type;
@@ -51,6 +59,40 @@ public class AnalyzeScope {
         this.files = files;
     }
 
+    public ScopeType getType() {
+        return type;
+    }
+
+    public List<VirtualFile> getFiles() {
+        return files;
+    }
+
+    public Module getModule() {
+        return module;
+    }
+
+    /**
+     * @return 是否只分析了指定的部分文件, 此时分析结果可以合并到已有结果中
+     */
+    public boolean isPartial() {
+        return !ScopeType.PROJECT_FILES.equals(type) && !ScopeType.MODULE_FILES.equals(type) && files != null && files.size() > 0;
+    }
+
+    /**
+     * @return 文件是否在分析范围内, 范围中的目录包含其下所有文件
+     */
+    public boolean covers(@NotNull VirtualFile virtualFile) {
+        if (!isPartial()) {
+            return true;
+        }
+        for (VirtualFile file : files) {
+            if (VfsUtilCore.isAncestor(file, virtualFile, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public String getSources() {
         if (ScopeType.PROJECT_FILES.equals(type)) {
             return IdeaUtils.getAllSourceRootPath(project);
@@ -85,6 +127,56 @@ public class AnalyzeScope {
         });
     }
 
+    /**
+     * 只编译分析范围所在的模块及其依赖的模块, 找不到模块时编译整个项目
+     */
+    @NotNull
+    public CompileScope createCompileScope(@NotNull CompilerManager compilerManager) {
+        if (ScopeType.MODULE_FILES.equals(type) && module != null) {
+            return compilerManager.createModuleCompileScope(module, true);
+        }
+        if (isPartial()) {
+            Set<Module> modules = ApplicationManager.getApplication().runReadAction((Computable<Set<Module>>) this::findModulesOfFiles);
+            if (!modules.isEmpty()) {
+                return compilerManager.createModulesCompileScope(modules.toArray(Module.EMPTY_ARRAY), true);
+            }
+        }
+        return compilerManager.createProjectCompileScope(project);
+    }
+
+    /**
+     * @return 分析范围所在模块及其依赖的jar, 找不到模块时返回整个项目的jar
+     */
+    public String getJavaLibraries() {
+        return ApplicationManager.getApplication().runReadAction((Computable<String>) () -> {
+            if (ScopeType.MODULE_FILES.equals(type) && module != null) {
+                return IdeaUtils.getClassPath(project, Collections.singletonList(module));
+            }
+            if (isPartial()) {
+                Set<Module> modules = findModulesOfFiles();
+                if (!modules.isEmpty()) {
+                    return IdeaUtils.getClassPath(project, modules);
+                }
+            }
+            return IdeaUtils.getFullClassPath(project);
+        });
+    }
+
+    /**
+     * @return 文件所在的模块, 有文件不属于任何模块时返回空集合
+     */
+    private Set<Module> findModulesOfFiles() {
+        Set<Module> ret = new LinkedHashSet<>();
+        for (VirtualFile file : files) {
+            Module fileModule = file.isValid() ? ModuleUtilCore.findModuleForFile(file, project) : null;
+            if (fileModule == null) {
+                return Collections.emptySet();
+            }
+            ret.add(fileModule);
+        }
+        return ret;
+    }
+
     public String getScopeDescription() {
         StringBuilder ret = new StringBuilder("Analyze scope: ");
         if (ScopeType.PROJECT_FILES.equals(type)) {
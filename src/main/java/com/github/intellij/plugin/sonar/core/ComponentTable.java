@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jetbrains.annotations.NotNull;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+/**
+ * 报告中component的元数据表, 以ref为数组下标, 每个component文件只读取解析一次
+ */
+public class ComponentTable {
+    private final MappedReportReader reader;
+    private final AtomicReferenceArray<ComponentInfo> components;
+
+    public ComponentTable(@NotNull MappedReportReader reader, int maxRef) {
+        this.reader = reader;
+        this.components = new AtomicReferenceArray<>(maxRef + 1);
+    }
+
+    @NotNull
+    public ComponentInfo get(int ref) {
+        if (ref < 0 || ref >= components.length()) {
+            return new ComponentInfo(reader.readComponent(ref));
+        }
+        ComponentInfo info = components.get(ref);
+        if (info == null) {
+            // 并发时可能重复读取, 但只保留第一个结果
+            components.compareAndSet(ref, null, new ComponentInfo(reader.readComponent(ref)));
+            info = components.get(ref);
+        }
+        return info;
+    }
+
+    public static class ComponentInfo {
+        private final int ref;
+        private final String projectRelativePath;
+        private final String language;
+        private final ScannerReport.Component.ComponentType type;
+
+        private ComponentInfo(ScannerReport.Component component) {
+            this.ref = component.getRef();
+            this.projectRelativePath = component.getProjectRelativePath();
+            this.language = component.getLanguage();
+            this.type = component.getType();
+        }
+
+        public int getRef() {
+            return ref;
+        }
+
+        public String getProjectRelativePath() {
+            return projectRelativePath;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public ScannerReport.Component.ComponentType getType() {
+            return type;
+        }
+    }
+}
@@ -21,32 +21,58 @@
 
 package com.github.intellij.plugin.sonar.core;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
-import com.intellij.psi.PsiFile;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 
 public class DuplicatedBlocksIssue extends AbstractIssue {
     private List<Duplicate> duplicates;
 
     public DuplicatedBlocksIssue(
-            PsiFile psiFile,
-            String ruleRepository,
-            String ruleKey,
-            String severity,
-            String type,
-            String name,
-            String htmlDesc,
+            Project project,
+            VirtualFile virtualFile,
+            RuleInfo ruleInfo,
             int lineStart,
             int lineEnd) {
-        super(psiFile, ruleRepository, ruleKey, "", severity, type, name, htmlDesc);
+        this(project, virtualFile, ruleInfo, lineStart, lineEnd, Collections.emptyList());
+    }
+
+    public DuplicatedBlocksIssue(
+            Project project,
+            VirtualFile virtualFile,
+            RuleInfo ruleInfo,
+            int lineStart,
+            int lineEnd,
+            List<Duplicate> duplicates) {
+        super(project, virtualFile, ruleInfo, "", ruleInfo.getSeverity());
         this.lineStart = lineStart;
         this.lineEnd = lineEnd;
 //        this.textRange = new TextRange(0, 0);
         this.offsetStart = 0;
         this.offsetEnd = 0;
-        this.duplicates = new ArrayList<>();
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * 同一组重复代码块中除第index个以外的其他块, 不复制原列表
+     */
+    public static List<Duplicate> othersOf(List<Duplicate> group, int index) {
+        return new AbstractList<Duplicate>() {
+            @Override
+            public Duplicate get(int i) {
+                return group.get(i < index ? i : i + 1);
+            }
+
+            @Override
+            public int size() {
+                return group.size() - 1;
+            }
+        };
     }
 
     public List<Duplicate> getDuplicates() {
@@ -57,23 +83,15 @@ public class DuplicatedBlocksIssue extends AbstractIssue {
         return duplicates.size();
     }
 
-    public void addDuplicate(Duplicate duplicate) {
-        duplicates.add(duplicate);
-    }
-
-    public void addDuplicates(List<Duplicate> duplicates) {
-        this.duplicates.addAll(duplicates);
-    }
-
     @Override
     public String getMsg() {
         return ResourcesLoader.getString("lineMarker.duplicationSummary", lineStart, lineEnd, duplicates.size());
     }
 
     public static class Duplicate {
-        private String path;
-        private int startLine;
-        private int endLine;
+        private final String path;
+        private final int startLine;
+        private final int endLine;
 
         public Duplicate(String path, int startLine, int endLine) {
             this.path = path;
@@ -92,5 +110,22 @@ public class DuplicatedBlocksIssue extends AbstractIssue {
         public int getEndLine() {
             return endLine;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Duplicate duplicate = (Duplicate) o;
+            return startLine == duplicate.startLine && endLine == duplicate.endLine && Objects.equals(path, duplicate.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, startLine, endLine);
+        }
     }
 }
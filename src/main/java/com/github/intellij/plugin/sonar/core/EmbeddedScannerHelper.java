@@ -21,12 +21,21 @@
 
 package com.github.intellij.plugin.sonar.core;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.github.intellij.plugin.sonar.common.IdeaUtils;
 import com.github.intellij.plugin.sonar.common.LogUtils;
 import com.github.intellij.plugin.sonar.common.SettingsUtils;
 import com.github.intellij.plugin.sonar.config.SonarQubeSettings;
 import com.github.intellij.plugin.sonar.messages.MessageBusManager;
+import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
+import com.github.intellij.plugin.sonar.service.EmbeddedScannerService;
 import git4idea.GitUtil;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
@@ -34,14 +43,23 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.jetbrains.annotations.NotNull;
-import org.sonarsource.scanner.api.EmbeddedScanner;
 import org.sonarsource.scanner.api.LogOutput;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 public final class EmbeddedScannerHelper {
+    /**
+     * 分组并行分析时每组的工作目录前缀, 与默认工作目录分开, 避免SonarScanner启动时清理工作目录互相影响
+     */
+    private static final String SHARD_WORKING_DIRECTORY_PREFIX = ".idea/SonarAnalyzer/.scannerwork-shard-";
+
     public static final List<String> EXCLUDED_PROPERTIES = Arrays.asList(
             "sonar.host.url",
             "sonar.login",
@@ -105,7 +123,7 @@ public final class EmbeddedScannerHelper {
 
             // props.put("sonar.sources", IdeaUtils.getAllSourceRootPath(project));
             props.put("sonar.sources", analyzeScope.getSources());
-            props.put("sonar.java.libraries", IdeaUtils.getFullClassPath(project));
+            props.put("sonar.java.libraries", analyzeScope.getJavaLibraries());
             props.put("sonar.java.binaries", analyzeScope.getJavaBinaries());
             props.put("sonar.sourceEncoding", IdeaUtils.getProjectFileEncoding(project));
 
@@ -125,11 +143,158 @@ public final class EmbeddedScannerHelper {
         return props;
     }
 
+    /**
+     * 启动扫描引擎需要的属性, 只包含连接和配置中的属性, 与具体的分析范围无关
+     */
+    public static Map<String, String> createGlobalProperties(Project project) {
+        Map<String, String> props = new HashMap<>();
+        SonarQubeSettings connection = SettingsUtils.getSonarQubeConnection(project);
+        props.put("sonar.host.url", connection.url);
+        props.put("sonar.login", connection.token);
+        props.put("sonar.working.directory", "./.idea/SonarAnalyzer/.scannerwork");
+        for (Map.Entry<String, String> item : SettingsUtils.getSonarProperties(project).entrySet()) {
+            if (!EXCLUDED_PROPERTIES.contains(item.getKey())) {
+                props.put(item.getKey(), item.getValue());
+            }
+        }
+        return props;
+    }
+
     public static void startEmbeddedScanner(@NotNull Project project, @NotNull AnalyzeScope analyzeScope, @NotNull LogOutput logOutput) {
         Map<String, String> taskProperties = createTaskProperties(project, analyzeScope);
-        EmbeddedScanner scanner = EmbeddedScanner.create("Intellij Sonar plugin", IdeaUtils.getPluginVersion(), logOutput);
-        scanner.addGlobalProperties(taskProperties);
-        scanner.start();
-        scanner.execute(taskProperties);
+        EmbeddedScannerService.getInstance(project).execute(createGlobalProperties(project), taskProperties, logOutput);
+    }
+
+    /**
+     * 把项目的模块按源文件数量分为最多concurrency组, 每组使用独立的工作目录并行分析.
+     * 各组分析时只生成报告快照, 全部完成后依次解析到同一个问题缓存中, 最后只发布一次.
+     * 每组的报告只包含部分模块, 上传到服务器时使用各自的分支, 不会互相覆盖, 也不会覆盖完整分析的分支
+     */
+    public static void startShardedEmbeddedScanner(@NotNull Project project, @NotNull AnalyzeScope analyzeScope, int concurrency) {
+        List<List<Module>> shards = createModuleShards(project, concurrency);
+        if (shards.size() <= 1) {
+            startEmbeddedScanner(project, analyzeScope, new LogOutputImpl(project));
+            return;
+        }
+        MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.scanner.shards",
+                String.valueOf(shards.stream().mapToInt(List::size).sum()), String.valueOf(shards.size())), LogOutput.Level.INFO);
+
+        Map<String, String> globalProperties = createGlobalProperties(project);
+        Map<String, String> baseTaskProperties = createTaskProperties(project, analyzeScope);
+        ExecutorService executor = Executors.newFixedThreadPool(shards.size());
+        List<LogOutputImpl> logOutputs = new ArrayList<>();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                List<Module> modules = shards.get(i);
+                String workingDirectory = SHARD_WORKING_DIRECTORY_PREFIX + i;
+                Map<String, String> taskProperties = new HashMap<>(baseTaskProperties);
+                taskProperties.put("sonar.working.directory", "./" + workingDirectory);
+                taskProperties.put("sonar.branch.name", baseTaskProperties.get("sonar.branch.name") + ":shard-" + i);
+                ApplicationManager.getApplication().runReadAction(() -> {
+                    taskProperties.put("sonar.sources", modules.stream().map(IdeaUtils::getAllSourceRootPath).collect(Collectors.joining(",")));
+                    taskProperties.put("sonar.java.libraries", IdeaUtils.getClassPath(project, modules));
+                    // 依赖的模块可能在其他组中, 同样需要它们的class文件解析类型
+                    taskProperties.put("sonar.java.binaries", IdeaUtils.getCompilerOutputPathWithDependencies(modules));
+                });
+                LogOutputImpl logOutput = new LogOutputImpl(project, workingDirectory, false);
+                logOutputs.add(logOutput);
+                futures.add(executor.submit(() -> EmbeddedScannerService.getInstance(project).execute(globalProperties, taskProperties, logOutput)));
+            }
+            // 某一组失败时仍等待其他组完成, 已生成的报告仍会被解析
+            RuntimeException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            parseShardReports(project, logOutputs);
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 各组的模块互不相交, 报告中的文件也不重复, 依次解析即可合并为一份结果
+     */
+    private static void parseShardReports(@NotNull Project project, @NotNull List<LogOutputImpl> logOutputs) {
+        boolean parsed = false;
+        for (LogOutputImpl logOutput : logOutputs) {
+            File reportDir = logOutput.getReportDir();
+            if (reportDir == null) {
+                continue;
+            }
+            try {
+                LogOutputImpl.parseReport(project, reportDir);
+                parsed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (Exception e) {
+                MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.parse.failed", LogUtils.formatException(e)), LogOutput.Level.ERROR);
+            }
+        }
+        if (parsed) {
+            LogOutputImpl.publishParsedReports(project);
+        }
+    }
+
+    /**
+     * 按源文件数量从大到小依次把模块放入当前文件最少的组, 没有源文件的模块不参与分析
+     */
+    private static List<List<Module>> createModuleShards(@NotNull Project project, int concurrency) {
+        Map<Module, Integer> fileCounts = new HashMap<>();
+        for (Module module : ModuleManager.getInstance(project).getModules()) {
+            // 每个模块单独在一次读操作中统计, 不长时间阻塞写操作
+            int count = ApplicationManager.getApplication().runReadAction((Computable<Integer>) () -> countSourceFiles(module));
+            if (count > 0) {
+                fileCounts.put(module, count);
+            }
+        }
+        List<Module> modules = new ArrayList<>(fileCounts.keySet());
+        modules.sort(Comparator.comparing((Module n) -> fileCounts.get(n)).reversed());
+        int shardCount = Math.min(concurrency, modules.size());
+        List<List<Module>> shards = new ArrayList<>();
+        int[] shardSizes = new int[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (Module module : modules) {
+            int smallest = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (shardSizes[i] < shardSizes[smallest]) {
+                    smallest = i;
+                }
+            }
+            shards.get(smallest).add(module);
+            shardSizes[smallest] += fileCounts.get(module);
+        }
+        return shards;
+    }
+
+    private static int countSourceFiles(@NotNull Module module) {
+        if (module.isDisposed()) {
+            return 0;
+        }
+        int[] count = new int[1];
+        for (VirtualFile sourceRoot : ModuleRootManager.getInstance(module).getSourceRoots(false)) {
+            VfsUtilCore.iterateChildrenRecursively(sourceRoot, null, file -> {
+                if (!file.isDirectory()) {
+                    count[0]++;
+                }
+                return true;
+            });
+        }
+        return count[0];
     }
 }
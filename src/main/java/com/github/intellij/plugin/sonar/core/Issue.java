@@ -21,23 +21,21 @@
 
 package com.github.intellij.plugin.sonar.core;
 
-import com.intellij.psi.PsiFile;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 
 public class Issue extends AbstractIssue {
     public Issue(
-            PsiFile psiFile,
-            String ruleRepository,
-            String ruleKey,
+            Project project,
+            VirtualFile virtualFile,
+            RuleInfo ruleInfo,
             String msg,
-            String severity,
+            Severity severity,
             int lineStart,
             int lineEnd,
             int offsetStart,
-            int offsetEnd,
-            String type,
-            String name,
-            String htmlDesc) {
-        super(psiFile, ruleRepository, ruleKey, msg, severity, type, name, htmlDesc);
+            int offsetEnd) {
+        super(project, virtualFile, ruleInfo, msg, severity);
         this.lineStart = lineStart;
         this.lineEnd = lineEnd;
         this.offsetStart = offsetStart;
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 问题过滤用的索引. 所有问题按文件顺序编号, 每个过滤维度的每个取值对应一个以编号为下标的BitSet,
+ * 过滤时同一维度内取并集, 不同维度间取交集, 最后按文件分组.
+ * 索引建立后不再变化, 问题数据或修复状态变化时需要重新建立.
+ */
+public final class IssueFilterIndex {
+    private final int size;
+    private final List<VirtualFile> files;
+    private final List<List<AbstractIssue>> fileIssues;
+    /**
+     * 第i个文件的问题编号为[fileOffsets[i], fileOffsets[i + 1])
+     */
+    private final int[] fileOffsets;
+
+    private final BitSet[] byType = new BitSet[IssueType.values().length];
+    private final BitSet[] bySeverity = new BitSet[Severity.values().length];
+    private final BitSet duplications = new BitSet();
+    private final BitSet fixed = new BitSet();
+
+    private int changedFilesVersion;
+    private BitSet changed;
+
+    private IssueFilterIndex(Builder builder) {
+        this.size = builder.size;
+        this.files = builder.files;
+        this.fileIssues = builder.fileIssues;
+        this.fileOffsets = new int[files.size() + 1];
+        for (int i = 0; i < builder.fileOffsets.size(); i++) {
+            fileOffsets[i] = builder.fileOffsets.get(i);
+        }
+        fileOffsets[files.size()] = size;
+        for (int i = 0; i < byType.length; i++) {
+            byType[i] = builder.byType[i];
+        }
+        for (int i = 0; i < bySeverity.length; i++) {
+            bySeverity[i] = builder.bySeverity[i];
+        }
+        duplications.or(builder.duplications);
+        fixed.or(builder.fixed);
+    }
+
+    /**
+     * 以问题对象建立索引, 用于非列式存储
+     */
+    @NotNull
+    public static IssueFilterIndex of(@NotNull Map<VirtualFile, List<AbstractIssue>> issues) {
+        Builder builder = new Builder();
+        issues.forEach((virtualFile, issueList) -> {
+            if (issueList.isEmpty()) {
+                return;
+            }
+            builder.addFile(virtualFile, issueList);
+            for (AbstractIssue issue : issueList) {
+                builder.addIssue(issue.getType(), issue.getSeverity(), issue instanceof DuplicatedBlocksIssue, issue.isFixed());
+            }
+        });
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public BitSet ofType(@NotNull IssueType type) {
+        return byType[type.ordinal()];
+    }
+
+    public BitSet ofSeverity(@NotNull Severity severity) {
+        return bySeverity[severity.ordinal()];
+    }
+
+    public BitSet duplications() {
+        return duplications;
+    }
+
+    public BitSet fixed() {
+        return fixed;
+    }
+
+    /**
+     * 变更文件中的问题. 变更文件集合的版本号与上次相同时直接使用上次的结果
+     */
+    public synchronized BitSet changed(@NotNull Set<VirtualFile> changedFiles, int changedFilesVersion) {
+        if (changed == null || changedFilesVersion != this.changedFilesVersion) {
+            BitSet ret = new BitSet(size);
+            for (int i = 0; i < files.size(); i++) {
+                if (changedFiles.contains(files.get(i))) {
+                    ret.set(fileOffsets[i], fileOffsets[i + 1]);
+                }
+            }
+            this.changedFilesVersion = changedFilesVersion;
+            this.changed = ret;
+        }
+        return changed;
+    }
+
+    /**
+     * @return 编号不在bits中的问题
+     */
+    public BitSet not(@NotNull BitSet bits) {
+        BitSet ret = new BitSet(size);
+        ret.set(0, size);
+        ret.andNot(bits);
+        return ret;
+    }
+
+    /**
+     * 按文件分组返回选中的问题, 文件的问题全部选中时直接使用原列表
+     */
+    @NotNull
+    public Map<VirtualFile, List<AbstractIssue>> select(@NotNull BitSet selected) {
+        Map<VirtualFile, List<AbstractIssue>> ret = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            int from = fileOffsets[i];
+            int to = fileOffsets[i + 1];
+            int first = selected.nextSetBit(from);
+            if (first < 0) {
+                break;
+            }
+            if (first >= to) {
+                continue;
+            }
+            List<AbstractIssue> issueList = fileIssues.get(i);
+            int nextClear = selected.nextClearBit(from);
+            if (nextClear >= to) {
+                ret.put(files.get(i), issueList);
+                continue;
+            }
+            int[] positions = new int[to - first];
+            int count = 0;
+            for (int id = first; id >= 0 && id < to; id = selected.nextSetBit(id + 1)) {
+                positions[count++] = id - from;
+            }
+            ret.put(files.get(i), new SelectedList(issueList, positions, count));
+        }
+        return Collections.unmodifiableMap(ret);
+    }
+
+    /**
+     * 原列表中选中的部分, 不复制也不提前创建问题对象
+     */
+    private static class SelectedList extends AbstractList<AbstractIssue> {
+        private final List<AbstractIssue> issues;
+        private final int[] positions;
+        private final int size;
+
+        SelectedList(List<AbstractIssue> issues, int[] positions, int size) {
+            this.issues = issues;
+            this.positions = positions;
+            this.size = size;
+        }
+
+        @Override
+        public AbstractIssue get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return issues.get(positions[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    static final class Builder {
+        private int size;
+        private final List<VirtualFile> files = new ArrayList<>();
+        private final List<List<AbstractIssue>> fileIssues = new ArrayList<>();
+        private final List<Integer> fileOffsets = new ArrayList<>();
+        private final BitSet[] byType = new BitSet[IssueType.values().length];
+        private final BitSet[] bySeverity = new BitSet[Severity.values().length];
+        private final BitSet duplications = new BitSet();
+        private final BitSet fixed = new BitSet();
+
+        Builder() {
+            for (int i = 0; i < byType.length; i++) {
+                byType[i] = new BitSet();
+            }
+            for (int i = 0; i < bySeverity.length; i++) {
+                bySeverity[i] = new BitSet();
+            }
+        }
+
+        /**
+         * 之后添加的问题属于这个文件, 顺序与issues一致
+         */
+        void addFile(@NotNull VirtualFile virtualFile, @NotNull List<AbstractIssue> issues) {
+            files.add(virtualFile);
+            fileIssues.add(issues);
+            fileOffsets.add(size);
+        }
+
+        void addIssue(@Nullable IssueType type, @Nullable Severity severity, boolean duplication, boolean isFixed) {
+            int id = size++;
+            if (type != null) {
+                byType[type.ordinal()].set(id);
+            }
+            if (severity != null) {
+                bySeverity[severity.ordinal()].set(id);
+            }
+            if (duplication) {
+                duplications.set(id);
+            }
+            if (isFixed) {
+                fixed.set(id);
+            }
+        }
+
+        IssueFilterIndex build() {
+            return new IssueFilterIndex(this);
+        }
+    }
+}
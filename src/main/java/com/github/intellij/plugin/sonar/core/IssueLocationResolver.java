@@ -0,0 +1,123 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.intellij.plugin.sonar.common.EventDispatchThreadHelper;
+import com.github.intellij.plugin.sonar.messages.MessageBusManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.sonarsource.scanner.api.LogOutput;
+
+/**
+ * 报告解析过程中在后台预先计算问题代码的位置, 编辑器展示问题时可以直接使用.
+ * 每次只在一个较短的非阻塞读操作中处理少量问题, 有写操作时读操作会被取消并在之后自动重新执行, 不会卡住编辑器.
+ */
+public class IssueLocationResolver {
+    private static final int CHUNK_SIZE = 50;
+    private static final Executor EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor("SonarAnalyzer Issue Location Resolver", 2);
+
+    private final Project project;
+    private final AtomicInteger pendingChunks = new AtomicInteger();
+    private final AtomicLong maxReadLockNanos = new AtomicLong();
+    private final AtomicBoolean allSubmitted = new AtomicBoolean();
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    public IssueLocationResolver(@NotNull Project project) {
+        this.project = project;
+    }
+
+    public void resolve(@NotNull VirtualFile virtualFile, @NotNull List<AbstractIssue> issues) {
+        // 只处理文档已加载的文件, 其他文件的问题在打开时才计算位置并创建RangeMarker
+        if (FileDocumentManager.getInstance().getCachedDocument(virtualFile) == null) {
+            return;
+        }
+        for (int from = 0; from < issues.size(); from += CHUNK_SIZE) {
+            List<AbstractIssue> chunk = issues.subList(from, Math.min(from + CHUNK_SIZE, issues.size()));
+            pendingChunks.incrementAndGet();
+            // 等待文档提交后再按PSI计算位置, 项目关闭时取消
+            ReadAction.nonBlocking(() -> resolveChunk(chunk))
+                    .withDocumentsCommitted(project)
+                    .expireWith(project)
+                    .expireWhen(() -> !virtualFile.isValid())
+                    .submit(EXECUTOR)
+                    .onProcessed(n -> chunkProcessed());
+        }
+    }
+
+    /**
+     * 所有文件都已提交, 全部处理完成后在日志中输出读锁最长持有时间
+     */
+    public void allSubmitted() {
+        allSubmitted.set(true);
+        reportIfDone();
+    }
+
+    private Void resolveChunk(List<AbstractIssue> chunk) {
+        long startTime = System.nanoTime();
+        try {
+            for (AbstractIssue issue : chunk) {
+                ProgressManager.checkCanceled();
+                try {
+                    issue.getTextRange();
+                } catch (ProcessCanceledException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    // 文件内容已经变化, 展示问题时会重新计算
+                }
+            }
+        } finally {
+            long elapsed = System.nanoTime() - startTime;
+            maxReadLockNanos.accumulateAndGet(elapsed, Math::max);
+        }
+        return null;
+    }
+
+    private void chunkProcessed() {
+        pendingChunks.decrementAndGet();
+        reportIfDone();
+    }
+
+    private void reportIfDone() {
+        if (!allSubmitted.get() || pendingChunks.get() > 0 || !reported.compareAndSet(false, true)) {
+            return;
+        }
+        String message = String.format("问题代码位置计算完成, 单次读锁最长持有%dms", TimeUnit.NANOSECONDS.toMillis(maxReadLockNanos.get()));
+        EventDispatchThreadHelper.invokeLater(() -> {
+            if (!project.isDisposed()) {
+                MessageBusManager.publishLog(project, message, LogOutput.Level.INFO);
+            }
+        });
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.impl.source.tree.LeafElement;
+import com.intellij.psi.impl.source.tree.TreeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 一个文件中问题位置的索引, 按问题所在行首个叶子节点的起始offset排序.
+ * 行标记按叶子节点的offset二分查找, 不再对每个节点遍历文件的全部问题; 外部注解直接使用索引中的范围.
+ * 索引对应建立时文档的修改序号, 文档修改后需要重新建立.
+ */
+public final class IssueOffsetIndex {
+    private final long modificationStamp;
+    private final int[] anchorOffsets;
+    private final AbstractIssue[] issues;
+    private final TextRange[] textRanges;
+
+    private IssueOffsetIndex(long modificationStamp, int[] anchorOffsets, AbstractIssue[] issues, TextRange[] textRanges) {
+        this.modificationStamp = modificationStamp;
+        this.anchorOffsets = anchorOffsets;
+        this.issues = issues;
+        this.textRanges = textRanges;
+    }
+
+    /**
+     * 需要在读操作中调用
+     */
+    @NotNull
+    static IssueOffsetIndex build(@NotNull List<AbstractIssue> fileIssues, long modificationStamp) {
+        List<Entry> entries = new ArrayList<>(fileIssues.size());
+        for (AbstractIssue issue : fileIssues) {
+            TextRange textRange = issue.getTextRange();
+            if (textRange == null || issue.isPossiblyFixed()) {
+                // 问题代码已被删除或无法确定位置, 不再标记
+                continue;
+            }
+            PsiElement anchor = firstLeafOrNull(issue.getPsiElement(textRange.getStartOffset()));
+            int anchorOffset = anchor != null ? anchor.getTextRange().getStartOffset() : -1;
+            entries.add(new Entry(anchorOffset, issue, textRange));
+        }
+        return of(entries, modificationStamp);
+    }
+
+    /**
+     * 以已经计算出行标记位置的问题建立索引, 行标记位置相同的问题保持原有顺序
+     */
+    @NotNull
+    static IssueOffsetIndex of(@NotNull List<Entry> entries, long modificationStamp) {
+        entries.sort(Comparator.comparingInt(n -> n.anchorOffset));
+
+        int size = entries.size();
+        int[] anchorOffsets = new int[size];
+        AbstractIssue[] issues = new AbstractIssue[size];
+        TextRange[] textRanges = new TextRange[size];
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries.get(i);
+            anchorOffsets[i] = entry.anchorOffset;
+            issues[i] = entry.issue;
+            textRanges[i] = entry.textRange;
+        }
+        return new IssueOffsetIndex(modificationStamp, anchorOffsets, issues, textRanges);
+    }
+
+    @Nullable
+    private static PsiElement firstLeafOrNull(@Nullable PsiElement element) {
+        if (element == null) {
+            return null;
+        }
+        LeafElement firstLeaf = TreeUtil.findFirstLeaf(element.getNode());
+        return firstLeaf != null ? firstLeaf.getPsi() : null;
+    }
+
+    public long getModificationStamp() {
+        return modificationStamp;
+    }
+
+    public int size() {
+        return issues.length;
+    }
+
+    @NotNull
+    public AbstractIssue getIssue(int index) {
+        return issues[index];
+    }
+
+    @NotNull
+    public TextRange getTextRange(int index) {
+        return textRanges[index];
+    }
+
+    /**
+     * @return 以offset处的叶子节点为行标记位置的问题
+     */
+    @NotNull
+    public List<AbstractIssue> findByAnchorOffset(int offset) {
+        int from = Arrays.binarySearch(anchorOffsets, offset);
+        if (from < 0) {
+            return Collections.emptyList();
+        }
+        while (from > 0 && anchorOffsets[from - 1] == offset) {
+            from--;
+        }
+        int to = from + 1;
+        while (to < anchorOffsets.length && anchorOffsets[to] == offset) {
+            to++;
+        }
+        return Collections.unmodifiableList(Arrays.asList(issues).subList(from, to));
+    }
+
+    static class Entry {
+        final int anchorOffset;
+        final AbstractIssue issue;
+        final TextRange textRange;
+
+        Entry(int anchorOffset, AbstractIssue issue, TextRange textRange) {
+            this.anchorOffset = anchorOffset;
+            this.issue = issue;
+            this.textRange = textRange;
+        }
+    }
+}
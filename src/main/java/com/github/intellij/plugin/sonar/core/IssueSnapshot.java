@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 发布给编辑器使用的问题快照, 创建后不再变化.
+ * 新的分析结果解析完成后才替换快照, 分析过程中编辑器继续使用上一个完整的快照.
+ */
+public final class IssueSnapshot {
+    public static final IssueSnapshot EMPTY = new IssueSnapshot(0, Collections.emptyMap());
+
+    private final long epoch;
+    private final Map<VirtualFile, List<AbstractIssue>> issues;
+    /**
+     * 按需建立的问题位置索引, 快照替换后随之失效
+     */
+    private final Map<VirtualFile, IssueOffsetIndex> offsetIndexes = new ConcurrentHashMap<>();
+
+    private IssueSnapshot(long epoch, Map<VirtualFile, List<AbstractIssue>> issues) {
+        this.epoch = epoch;
+        this.issues = issues;
+    }
+
+    /**
+     * 复制文件到问题列表的映射. 问题列表在缓存中不会被原地修改, 只复制映射本身
+     */
+    @NotNull
+    public static IssueSnapshot of(long epoch, @NotNull Map<VirtualFile, List<AbstractIssue>> issues) {
+        Map<VirtualFile, List<AbstractIssue>> copy = new HashMap<>(issues.size() * 2);
+        issues.forEach((virtualFile, issueList) -> {
+            if (!issueList.isEmpty()) {
+                copy.put(virtualFile, issueList);
+            }
+        });
+        return new IssueSnapshot(epoch, Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * @return 快照的序号, 每次发布加一
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    @NotNull
+    public List<AbstractIssue> getIssues(@NotNull VirtualFile virtualFile) {
+        List<AbstractIssue> ret = issues.get(virtualFile);
+        return ret != null ? ret : Collections.emptyList();
+    }
+
+    @NotNull
+    public Map<VirtualFile, List<AbstractIssue>> getIssues() {
+        return issues;
+    }
+
+    /**
+     * @return 与另一个快照相比问题有变化的文件. 问题列表不会被原地修改, 列式存储对没有变化的文件也返回同一个列表, 所以只比较列表是否为同一个对象
+     */
+    @NotNull
+    public Set<VirtualFile> changedFiles(@NotNull IssueSnapshot other) {
+        Set<VirtualFile> ret = new HashSet<>();
+        issues.forEach((virtualFile, issueList) -> {
+            if (other.issues.get(virtualFile) != issueList) {
+                ret.add(virtualFile);
+            }
+        });
+        other.issues.forEach((virtualFile, issueList) -> {
+            if (issues.get(virtualFile) != issueList) {
+                ret.add(virtualFile);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * 返回文件的问题位置索引, 文档修改后重新建立. 需要在读操作中调用
+     *
+     * @return 文件中没有问题时返回null
+     */
+    @Nullable
+    public IssueOffsetIndex getOffsetIndex(@NotNull VirtualFile virtualFile, @NotNull Document document) {
+        List<AbstractIssue> fileIssues = issues.get(virtualFile);
+        if (fileIssues == null) {
+            return null;
+        }
+        long stamp = document.getModificationStamp();
+        IssueOffsetIndex index = offsetIndexes.get(virtualFile);
+        if (index == null || index.getModificationStamp() != stamp) {
+            index = IssueOffsetIndex.build(fileIssues, stamp);
+            offsetIndexes.put(virtualFile, index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,510 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import com.github.intellij.plugin.sonar.common.EventDispatchThreadHelper;
+import com.github.intellij.plugin.sonar.common.IdeaUtils;
+import com.github.intellij.plugin.sonar.messages.MessageBusManager;
+import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
+import com.github.intellij.plugin.sonar.service.ProblemCacheService;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sonarsource.scanner.api.LogOutput;
+
+/**
+ * 把最近一次解析出的问题保存为二进制快照, IDE重启后不必重新分析就能看到上次的结果.
+ * <p>
+ * 文件格式: magic, 版本号, 按文件的统计数据, 分析范围, 规则表, 字符串表, 按文件分组的问题(含分析时文件的时间戳), 最后是前面所有内容的CRC32.
+ * 校验不通过或版本不一致时认为快照已损坏, 直接删除.
+ */
+public final class IssueSnapshotStore {
+    private static final Logger LOGGER = Logger.getInstance(IssueSnapshotStore.class);
+
+    private static final String SNAPSHOT_FILE = ".idea/SonarAnalyzer/issues.snapshot";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x534F4E49;
+    private static final int VERSION = 3;
+
+    private static final byte KIND_ISSUE = 0;
+    private static final byte KIND_DUPLICATION = 1;
+
+    private static final Object SAVE_LOCK = new Object();
+    private static final Set<Project> PENDING_SAVES = ConcurrentHashMap.newKeySet();
+    private static final Set<Project> RESTORE_ATTEMPTED = ConcurrentHashMap.newKeySet();
+
+    private IssueSnapshotStore() {
+    }
+
+    /**
+     * 在后台线程中保存快照, 已有未执行的保存时不再重复提交
+     */
+    public static void saveInBackground(@NotNull Project project) {
+        if (!PENDING_SAVES.add(project)) {
+            return;
+        }
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            PENDING_SAVES.remove(project);
+            if (project.isDisposed()) {
+                return;
+            }
+            try {
+                save(project);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to save issue snapshot", e);
+            }
+        });
+    }
+
+    public static void save(@NotNull Project project) throws IOException {
+        ProblemCacheService problemCacheService = ProblemCacheService.getInstance(project);
+        if (!problemCacheService.isInitialized()) {
+            return;
+        }
+        byte[] data = write(project, problemCacheService);
+        Path snapshotPath = Paths.get(project.getBasePath(), SNAPSHOT_FILE);
+        Path tempPath = Paths.get(project.getBasePath(), SNAPSHOT_FILE + TEMP_SUFFIX);
+        synchronized (SAVE_LOCK) {
+            Files.createDirectories(snapshotPath.getParent());
+            Files.write(tempPath, data);
+            Files.move(tempPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 项目打开或工具窗口首次展示时调用, 每个项目只恢复一次.
+     * 快照在后台线程中读取, 如果此时已经开始了新的分析则放弃恢复.
+     */
+    public static void restoreInBackground(@NotNull Project project) {
+        if (!RESTORE_ATTEMPTED.add(project)) {
+            return;
+        }
+        Disposer.register(project, () -> RESTORE_ATTEMPTED.remove(project));
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            if (project.isDisposed()) {
+                return;
+            }
+            long start = System.nanoTime();
+            Snapshot snapshot = load(project);
+            if (snapshot == null) {
+                return;
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            EventDispatchThreadHelper.invokeLater(() -> {
+                if (project.isDisposed() || !AnalyzeState.get(project).isIdle()) {
+                    return;
+                }
+                if (!ProblemCacheService.getInstance(project).restore(snapshot.issues, snapshot.statsByFile, snapshot.analyzeScope)) {
+                    return;
+                }
+                MessageBusManager.publishIssuesUpdated(project);
+                MessageBusManager.publishLog(project, ResourcesLoader.getString("analysis.report.restore.success", String.valueOf(snapshot.issueCount), String.valueOf(elapsedMillis)), LogOutput.Level.INFO);
+            });
+        });
+    }
+
+    @Nullable
+    static Snapshot load(@NotNull Project project) {
+        Path snapshotPath = Paths.get(project.getBasePath(), SNAPSHOT_FILE);
+        if (!Files.isRegularFile(snapshotPath)) {
+            return null;
+        }
+        try {
+            byte[] data = Files.readAllBytes(snapshotPath);
+            Snapshot snapshot;
+            try {
+                snapshot = read(project, data);
+            } catch (IOException | RuntimeException e) {
+                // 校验通过但内容无法解析, 同样按损坏处理
+                snapshot = null;
+            }
+            if (snapshot == null) {
+                LOGGER.warn("Issue snapshot is corrupted or outdated, deleting " + snapshotPath);
+                Files.deleteIfExists(snapshotPath);
+            }
+            return snapshot;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to load issue snapshot", e);
+            return null;
+        }
+    }
+
+    private static byte[] write(Project project, ProblemCacheService problemCacheService) throws IOException {
+        Map<VirtualFile, List<AbstractIssue>> issues = new LinkedHashMap<>();
+        Map<VirtualFile, ReportStats> statsByFile = new LinkedHashMap<>();
+        AnalyzeScope analyzeScope;
+        // 在服务的锁内复制, 保存期间新合并的结果不会只写入一部分, 问题和统计数据保持一致
+        synchronized (problemCacheService) {
+            problemCacheService.getIssues().forEach((virtualFile, issueList) -> issues.put(virtualFile, new ArrayList<>(issueList)));
+            problemCacheService.getStatsByFile().forEach((virtualFile, stats) -> {
+                ReportStats copy = new ReportStats();
+                copy.add(stats);
+                statsByFile.put(virtualFile, copy);
+            });
+            analyzeScope = problemCacheService.getAnalyzeScope();
+        }
+        return write(issues, statsByFile, analyzeScope, virtualFile -> IdeaUtils.getPath(project, virtualFile));
+    }
+
+    /**
+     * @param pathOf 文件保存在快照中的路径, 项目中的文件使用相对路径
+     */
+    static byte[] write(
+            Map<VirtualFile, List<AbstractIssue>> issues,
+            Map<VirtualFile, ReportStats> statsByFile,
+            @Nullable AnalyzeScope analyzeScope,
+            Function<VirtualFile, String> pathOf) throws IOException {
+        Map<RuleInfo, Integer> ruleIndexes = new IdentityHashMap<>();
+        List<RuleInfo> rules = new ArrayList<>();
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+
+        // 问题部分先写入单独的缓冲区, 写完才知道规则表和字符串表的内容
+        ByteArrayOutputStream issuesBuffer = new ByteArrayOutputStream();
+        DataOutputStream issuesOut = new DataOutputStream(issuesBuffer);
+        int fileCount = 0;
+        for (Map.Entry<VirtualFile, List<AbstractIssue>> entry : issues.entrySet()) {
+            List<AbstractIssue> issueList = entry.getValue();
+            if (issueList.isEmpty()) {
+                continue;
+            }
+            fileCount++;
+            writeString(issuesOut, pathOf.apply(entry.getKey()));
+            // 同一文件的问题来自同一次分析
+            issuesOut.writeLong(issueList.get(0).getAnalyzedTimeStamp());
+            issuesOut.writeInt(issueList.size());
+            for (AbstractIssue issue : issueList) {
+                boolean duplication = issue instanceof DuplicatedBlocksIssue;
+                issuesOut.writeByte(duplication ? KIND_DUPLICATION : KIND_ISSUE);
+                issuesOut.writeInt(ruleIndexes.computeIfAbsent(issue.ruleInfo, ruleInfo -> {
+                    rules.add(ruleInfo);
+                    return rules.size() - 1;
+                }));
+                issuesOut.writeByte(ordinal(issue.severity));
+                issuesOut.writeInt(issue.lineStart);
+                issuesOut.writeInt(issue.lineEnd);
+                issuesOut.writeInt(issue.offsetStart);
+                issuesOut.writeInt(issue.offsetEnd);
+                issuesOut.writeBoolean(issue.isFixed());
+                if (duplication) {
+                    List<DuplicatedBlocksIssue.Duplicate> duplicates = ((DuplicatedBlocksIssue) issue).getDuplicates();
+                    issuesOut.writeInt(duplicates.size());
+                    for (DuplicatedBlocksIssue.Duplicate duplicate : duplicates) {
+                        issuesOut.writeInt(stringIndex(duplicate.getPath(), stringIndexes, strings));
+                        issuesOut.writeInt(duplicate.getStartLine());
+                        issuesOut.writeInt(duplicate.getEndLine());
+                    }
+                } else {
+                    issuesOut.writeInt(stringIndex(issue.msg, stringIndexes, strings));
+                }
+            }
+        }
+        issuesOut.flush();
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(issuesBuffer.size() + 4096);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        // 按文件保存统计数据, 恢复后部分文件重新分析时仍能按差值更新总数
+        Map<VirtualFile, ReportStats> statsSnapshot = new LinkedHashMap<>(statsByFile);
+        out.writeInt(statsSnapshot.size());
+        for (Map.Entry<VirtualFile, ReportStats> entry : statsSnapshot.entrySet()) {
+            ReportStats stats = entry.getValue();
+            writeString(out, pathOf.apply(entry.getKey()));
+            out.writeInt(stats.bugCount);
+            out.writeInt(stats.codeSmellCount);
+            out.writeInt(stats.vulnerabilityCount);
+            out.writeInt(stats.duplicatedBlocksCount);
+            out.writeInt(stats.securityHotSpotCount);
+            out.writeInt(stats.blockerCount);
+            out.writeInt(stats.criticalCount);
+            out.writeInt(stats.majorCount);
+            out.writeInt(stats.minorCount);
+            out.writeInt(stats.infoCount);
+            out.writeInt(stats.ignoreIssueCount);
+        }
+
+        out.writeBoolean(analyzeScope != null);
+        if (analyzeScope != null) {
+            writeString(out, analyzeScope.getType().name());
+            writeString(out, analyzeScope.getModule() != null ? analyzeScope.getModule().getName() : null);
+            List<VirtualFile> scopeFiles = analyzeScope.getFiles() != null ? analyzeScope.getFiles() : Collections.emptyList();
+            out.writeInt(scopeFiles.size());
+            for (VirtualFile scopeFile : scopeFiles) {
+                writeString(out, pathOf.apply(scopeFile));
+            }
+        }
+
+        // 规则只保存展示问题需要的部分
+        out.writeInt(rules.size());
+        for (RuleInfo rule : rules) {
+            writeString(out, rule.getRepository());
+            writeString(out, rule.getKey());
+            writeString(out, rule.getName());
+            writeString(out, rule.getHtmlDesc());
+            writeString(out, rule.getTypeName());
+            out.writeByte(ordinal(rule.getSeverity()));
+        }
+
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+
+        out.writeInt(fileCount);
+        issuesBuffer.writeTo(out);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.toByteArray(), 0, buffer.size());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    @Nullable
+    private static Snapshot read(Project project, byte[] data) throws IOException {
+        return read(project, data, path -> findFile(project, path));
+    }
+
+    /**
+     * @param fileOf 按快照中的路径查找文件, 文件已不存在时返回null
+     * @return 快照内容, 校验不通过或版本不一致时返回null
+     */
+    @Nullable
+    static Snapshot read(Project project, byte[] data, Function<String, VirtualFile> fileOf) throws IOException {
+        if (data.length < 16) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 8);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        in.skipBytes(data.length - 8);
+        if (crc.getValue() != in.readLong()) {
+            return null;
+        }
+
+        in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 8));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return null;
+        }
+
+        Snapshot snapshot = new Snapshot();
+        int statsFileCount = in.readInt();
+        for (int i = 0; i < statsFileCount; i++) {
+            VirtualFile virtualFile = fileOf.apply(readString(in));
+            ReportStats stats = new ReportStats();
+            stats.bugCount = in.readInt();
+            stats.codeSmellCount = in.readInt();
+            stats.vulnerabilityCount = in.readInt();
+            stats.duplicatedBlocksCount = in.readInt();
+            stats.securityHotSpotCount = in.readInt();
+            stats.blockerCount = in.readInt();
+            stats.criticalCount = in.readInt();
+            stats.majorCount = in.readInt();
+            stats.minorCount = in.readInt();
+            stats.infoCount = in.readInt();
+            stats.ignoreIssueCount = in.readInt();
+            if (virtualFile != null) {
+                snapshot.statsByFile.put(virtualFile, stats);
+            }
+        }
+
+        if (in.readBoolean()) {
+            snapshot.analyzeScope = readAnalyzeScope(project, in, fileOf);
+        }
+
+        RuleInfo[] rules = new RuleInfo[in.readInt()];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = new RuleInfo(readString(in), readString(in), readString(in), readString(in), readString(in), severityOf(in.readByte()));
+        }
+
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+        }
+
+        int fileCount = in.readInt();
+        Map<VirtualFile, List<AbstractIssue>> issues = new LinkedHashMap<>(fileCount * 2);
+        for (int i = 0; i < fileCount; i++) {
+            // 文件已经不存在时仍要读完它的问题, 只是不保留
+            VirtualFile virtualFile = fileOf.apply(readString(in));
+            long analyzedTimeStamp = in.readLong();
+            int issueCount = in.readInt();
+            List<AbstractIssue> issueList = new ArrayList<>(issueCount);
+            for (int j = 0; j < issueCount; j++) {
+                byte kind = in.readByte();
+                RuleInfo rule = rules[in.readInt()];
+                Severity severity = severityOf(in.readByte());
+                int lineStart = in.readInt();
+                int lineEnd = in.readInt();
+                int offsetStart = in.readInt();
+                int offsetEnd = in.readInt();
+                boolean fixed = in.readBoolean();
+                List<DuplicatedBlocksIssue.Duplicate> duplicates = null;
+                String msg = null;
+                if (kind == KIND_DUPLICATION) {
+                    int duplicateCount = in.readInt();
+                    duplicates = new ArrayList<>(duplicateCount);
+                    for (int k = 0; k < duplicateCount; k++) {
+                        duplicates.add(new DuplicatedBlocksIssue.Duplicate(strings[in.readInt()], in.readInt(), in.readInt()));
+                    }
+                } else {
+                    msg = strings[in.readInt()];
+                }
+                if (virtualFile == null) {
+                    // 创建问题时需要读取文件的时间戳
+                    continue;
+                }
+                AbstractIssue issue;
+                if (duplicates != null) {
+                    issue = new DuplicatedBlocksIssue(project, virtualFile, rule, lineStart, lineEnd, Collections.unmodifiableList(duplicates));
+                } else {
+                    issue = new Issue(project, virtualFile, rule, msg, severity, lineStart, lineEnd, offsetStart, offsetEnd);
+                }
+                issue.setFixed(fixed);
+                issue.setAnalyzedTimeStamp(analyzedTimeStamp);
+                issueList.add(issue);
+            }
+            if (virtualFile != null && !issueList.isEmpty()) {
+                issues.put(virtualFile, issueList);
+                snapshot.issueCount += issueList.size();
+            }
+        }
+        snapshot.issues = issues;
+        return snapshot;
+    }
+
+    @Nullable
+    private static AnalyzeScope readAnalyzeScope(Project project, DataInputStream in, Function<String, VirtualFile> fileOf) throws IOException {
+        String typeName = readString(in);
+        String moduleName = readString(in);
+        int fileCount = in.readInt();
+        List<VirtualFile> files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            VirtualFile file = fileOf.apply(readString(in));
+            if (file != null) {
+                files.add(file);
+            }
+        }
+
+        AnalyzeScope.ScopeType type;
+        try {
+            type = AnalyzeScope.ScopeType.valueOf(typeName);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (AnalyzeScope.ScopeType.PROJECT_FILES.equals(type)) {
+            return new AnalyzeScope(project, type);
+        }
+        if (AnalyzeScope.ScopeType.MODULE_FILES.equals(type)) {
+            Module module = moduleName != null ? ModuleManager.getInstance(project).findModuleByName(moduleName) : null;
+            return module != null ? new AnalyzeScope(project, type, module) : null;
+        }
+        return files.isEmpty() ? null : new AnalyzeScope(project, type, files);
+    }
+
+    @Nullable
+    private static VirtualFile findFile(Project project, String path) {
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(project.getBasePath(), path);
+        }
+        return IdeaUtils.findFileByIoFile(file);
+    }
+
+    private static int stringIndex(String string, Map<String, Integer> indexes, List<String> strings) {
+        return indexes.computeIfAbsent(string, key -> {
+            strings.add(key);
+            return strings.size() - 1;
+        });
+    }
+
+    private static byte ordinal(@Nullable Severity severity) {
+        return (byte) (severity != null ? severity.ordinal() : -1);
+    }
+
+    @Nullable
+    private static Severity severityOf(byte ordinal) {
+        return ordinal >= 0 ? Severity.values()[ordinal] : null;
+    }
+
+    /**
+     * 规则描述可能超过writeUTF的64K限制, 所以使用int长度前缀, null写为-1
+     */
+    private static void writeString(DataOutputStream out, @Nullable String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static final class Snapshot {
+        final Map<VirtualFile, ReportStats> statsByFile = new HashMap<>();
+        AnalyzeScope analyzeScope;
+        Map<VirtualFile, List<AbstractIssue>> issues;
+        int issueCount;
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.intellij.openapi.editor.RangeMarker;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 列式存储的问题集合, 用于问题数量非常多的报告.
+ * 每个问题是一行, 各字段保存在平行的int数组中, 文件/规则/问题描述保存在各自的表中, 行中只记录下标;
+ * {@link AbstractIssue}对象只在界面或编辑器实际访问某一行时才创建.
+ */
+public class IssueStore {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Project project;
+
+    private int size;
+    private int[] fileIds = new int[INITIAL_CAPACITY];
+    private int[] lineStarts = new int[INITIAL_CAPACITY];
+    private int[] lineEnds = new int[INITIAL_CAPACITY];
+    private int[] offsetStarts = new int[INITIAL_CAPACITY];
+    private int[] offsetEnds = new int[INITIAL_CAPACITY];
+    private int[] ruleIds = new int[INITIAL_CAPACITY];
+    private int[] messageIds = new int[INITIAL_CAPACITY];
+    /**
+     * 枚举的ordinal, null时为-1
+     */
+    private byte[] severities = new byte[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private final BitSet duplications = new BitSet();
+    private final BitSet fixed = new BitSet();
+    /**
+     * 问题对象每次访问时重新创建, 行标记和可能已修复的状态保存在这里, 编辑后仍能找到问题的位置
+     */
+    private final Map<Integer, RangeMarker> rangeMarkers = new HashMap<>();
+    private final BitSet possiblyFixed = new BitSet();
+    /**
+     * 重复代码块问题的重复块列表, 只有少数行有值
+     */
+    private final Map<Integer, List<DuplicatedBlocksIssue.Duplicate>> duplicates = new HashMap<>();
+
+    private final List<VirtualFile> files = new ArrayList<>();
+    private final Map<VirtualFile, Integer> fileIdByFile = new HashMap<>();
+    private final List<int[]> rowsByFile = new ArrayList<>();
+    private final List<Integer> rowCountsByFile = new ArrayList<>();
+    /**
+     * 每个文件的问题列表, 文件的行变化时才重新创建. 列表实例不变即表示文件的问题没有变化, 编辑器据此判断哪些文件需要重新分析
+     */
+    private final List<RowList> rowListsByFile = new ArrayList<>();
+    /**
+     * 分析时文件在磁盘上的时间戳, 同一文件的问题来自同一次分析
+     */
+    private final List<Long> analyzedTimeStampsByFile = new ArrayList<>();
+
+    private final List<RuleInfo> rules = new ArrayList<>();
+    private final Map<RuleInfo, Integer> ruleIdByRule = new IdentityHashMap<>();
+
+    private final List<String> messages = new ArrayList<>();
+    private final Map<String, Integer> messageIdByMessage = new HashMap<>();
+
+    public IssueStore(@NotNull Project project) {
+        this.project = project;
+    }
+
+    public synchronized void addAll(@NotNull VirtualFile virtualFile, @NotNull List<AbstractIssue> issues) {
+        int fileId = fileId(virtualFile);
+        if (!issues.isEmpty()) {
+            analyzedTimeStampsByFile.set(fileId, issues.get(0).getAnalyzedTimeStamp());
+        }
+        for (AbstractIssue issue : issues) {
+            add(fileId, issue);
+        }
+    }
+
+    /**
+     * 移除文件的全部问题. 被移除的行不再被任何文件引用, 只是不回收空间, 下次全量分析时整体重建
+     */
+    public synchronized void removeFile(@NotNull VirtualFile virtualFile) {
+        Integer fileId = fileIdByFile.remove(virtualFile);
+        if (fileId != null) {
+            int[] rows = rowsByFile.get(fileId);
+            for (int i = 0; i < rowCountsByFile.get(fileId); i++) {
+                rangeMarkers.remove(rows[i]);
+                possiblyFixed.clear(rows[i]);
+            }
+            rowCountsByFile.set(fileId, 0);
+            rowListsByFile.set(fileId, null);
+        }
+    }
+
+    private void add(int fileId, AbstractIssue issue) {
+        ensureCapacity(size + 1);
+        int row = size;
+        fileIds[row] = fileId;
+        lineStarts[row] = issue.lineStart;
+        lineEnds[row] = issue.lineEnd;
+        offsetStarts[row] = issue.offsetStart;
+        offsetEnds[row] = issue.offsetEnd;
+        ruleIds[row] = ruleId(issue.getRuleInfo());
+        messageIds[row] = messageId(issue instanceof DuplicatedBlocksIssue ? "" : issue.msg);
+        severities[row] = (byte) (issue.getSeverity() == null ? -1 : issue.getSeverity().ordinal());
+        types[row] = (byte) (issue.getType() == null ? -1 : issue.getType().ordinal());
+        if (issue instanceof DuplicatedBlocksIssue) {
+            duplications.set(row);
+            duplicates.put(row, ((DuplicatedBlocksIssue) issue).getDuplicates());
+        }
+        fixed.set(row, issue.isFixed());
+        addRowToFile(fileId, row);
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int fileCount() {
+        return files.size();
+    }
+
+    private synchronized int liveFileCount() {
+        return fileIdByFile.size();
+    }
+
+    private synchronized boolean isLive(int fileId) {
+        Integer liveFileId = fileIdByFile.get(files.get(fileId));
+        return liveFileId != null && liveFileId == fileId;
+    }
+
+    public synchronized VirtualFile getFile(int fileId) {
+        return files.get(fileId);
+    }
+
+    /**
+     * @return 文件的id, 文件中没有问题时返回-1
+     */
+    public synchronized int getFileId(@NotNull VirtualFile virtualFile) {
+        Integer fileId = fileIdByFile.get(virtualFile);
+        return fileId == null ? -1 : fileId;
+    }
+
+    public synchronized int[] getRows(int fileId) {
+        return Arrays.copyOf(rowsByFile.get(fileId), rowCountsByFile.get(fileId));
+    }
+
+    private synchronized RowList getRowList(int fileId) {
+        RowList rowList = rowListsByFile.get(fileId);
+        if (rowList == null) {
+            rowList = new RowList(getRows(fileId));
+            rowListsByFile.set(fileId, rowList);
+        }
+        return rowList;
+    }
+
+    public synchronized int getFileIdOf(int row) {
+        return fileIds[row];
+    }
+
+    @Nullable
+    public synchronized IssueType getType(int row) {
+        return types[row] < 0 ? null : IssueType.values()[types[row]];
+    }
+
+    @Nullable
+    public synchronized Severity getSeverity(int row) {
+        return severities[row] < 0 ? null : Severity.values()[severities[row]];
+    }
+
+    public synchronized boolean isDuplication(int row) {
+        return duplications.get(row);
+    }
+
+    public synchronized boolean isFixed(int row) {
+        return fixed.get(row);
+    }
+
+    public synchronized void setFixed(int row, boolean value) {
+        fixed.set(row, value);
+    }
+
+    @Nullable
+    synchronized RangeMarker getRangeMarker(int row) {
+        return rangeMarkers.get(row);
+    }
+
+    synchronized void setRangeMarker(int row, @NotNull RangeMarker rangeMarker) {
+        rangeMarkers.put(row, rangeMarker);
+    }
+
+    synchronized boolean isPossiblyFixed(int row) {
+        return possiblyFixed.get(row);
+    }
+
+    synchronized void setPossiblyFixed(int row) {
+        possiblyFixed.set(row);
+    }
+
+    /**
+     * 按行创建问题对象, 对象的修复状态、行标记和可能已修复的状态会写回存储
+     */
+    @NotNull
+    public synchronized AbstractIssue getIssue(int row) {
+        VirtualFile virtualFile = files.get(fileIds[row]);
+        RuleInfo rule = rules.get(ruleIds[row]);
+        AbstractIssue issue;
+        if (duplications.get(row)) {
+            issue = new DuplicatedBlocksIssue(project, virtualFile, rule, lineStarts[row], lineEnds[row], duplicates.get(row));
+        } else {
+            issue = new Issue(
+                    project,
+                    virtualFile,
+                    rule,
+                    messages.get(messageIds[row]),
+                    getSeverity(row),
+                    lineStarts[row],
+                    lineEnds[row],
+                    offsetStarts[row],
+                    offsetEnds[row]);
+        }
+        issue.attach(this, row, fixed.get(row), analyzedTimeStampsByFile.get(fileIds[row]));
+        return issue;
+    }
+
+    /**
+     * @return 以文件分组的全部问题, 问题对象在访问时才创建. 问题没有变化的文件每次返回同一个列表实例
+     */
+    @NotNull
+    public Map<VirtualFile, List<AbstractIssue>> asMap() {
+        return new FileIssuesMap();
+    }
+
+    /**
+     * 以列中的数据建立过滤索引, 不创建问题对象
+     */
+    @NotNull
+    public synchronized IssueFilterIndex createFilterIndex() {
+        IssueFilterIndex.Builder builder = new IssueFilterIndex.Builder();
+        for (int fileId = 0; fileId < files.size(); fileId++) {
+            int rowCount = rowCountsByFile.get(fileId);
+            if (rowCount == 0) {
+                continue;
+            }
+            RowList rowList = getRowList(fileId);
+            builder.addFile(files.get(fileId), rowList);
+            for (int row : rowList.rows) {
+                builder.addIssue(getType(row), getSeverity(row), duplications.get(row), fixed.get(row));
+            }
+        }
+        return builder.build();
+    }
+
+    private int fileId(VirtualFile virtualFile) {
+        Integer fileId = fileIdByFile.get(virtualFile);
+        if (fileId == null) {
+            fileId = files.size();
+            files.add(virtualFile);
+            fileIdByFile.put(virtualFile, fileId);
+            rowsByFile.add(new int[4]);
+            rowCountsByFile.add(0);
+            rowListsByFile.add(null);
+            analyzedTimeStampsByFile.add(virtualFile.getTimeStamp());
+        }
+        return fileId;
+    }
+
+    private int ruleId(RuleInfo rule) {
+        Integer ruleId = ruleIdByRule.get(rule);
+        if (ruleId == null) {
+            ruleId = rules.size();
+            rules.add(rule);
+            ruleIdByRule.put(rule, ruleId);
+        }
+        return ruleId;
+    }
+
+    private int messageId(String message) {
+        Integer messageId = messageIdByMessage.get(message);
+        if (messageId == null) {
+            messageId = messages.size();
+            messages.add(message);
+            messageIdByMessage.put(message, messageId);
+        }
+        return messageId;
+    }
+
+    private void addRowToFile(int fileId, int row) {
+        int[] rows = rowsByFile.get(fileId);
+        int rowCount = rowCountsByFile.get(fileId);
+        if (rowCount == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+            rowsByFile.set(fileId, rows);
+        }
+        rows[rowCount] = row;
+        rowCountsByFile.set(fileId, rowCount + 1);
+        rowListsByFile.set(fileId, null);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= fileIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, fileIds.length * 2);
+        fileIds = Arrays.copyOf(fileIds, newCapacity);
+        lineStarts = Arrays.copyOf(lineStarts, newCapacity);
+        lineEnds = Arrays.copyOf(lineEnds, newCapacity);
+        offsetStarts = Arrays.copyOf(offsetStarts, newCapacity);
+        offsetEnds = Arrays.copyOf(offsetEnds, newCapacity);
+        ruleIds = Arrays.copyOf(ruleIds, newCapacity);
+        messageIds = Arrays.copyOf(messageIds, newCapacity);
+        severities = Arrays.copyOf(severities, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+    }
+
+    /**
+     * 若干行组成的只读列表, 访问元素时才创建问题对象
+     */
+    private class RowList extends AbstractList<AbstractIssue> {
+        private final int[] rows;
+
+        RowList(int[] rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public AbstractIssue get(int index) {
+            return getIssue(rows[index]);
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    /**
+     * 以文件分组的只读视图, 只在访问某个文件时才复制该文件的行号
+     */
+    private class FileIssuesMap extends AbstractMap<VirtualFile, List<AbstractIssue>> {
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof VirtualFile && getFileId((VirtualFile) key) >= 0;
+        }
+
+        @Override
+        public List<AbstractIssue> get(Object key) {
+            if (!(key instanceof VirtualFile)) {
+                return null;
+            }
+            int fileId = getFileId((VirtualFile) key);
+            return fileId < 0 ? null : getRowList(fileId);
+        }
+
+        @Override
+        public int size() {
+            return liveFileCount();
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<VirtualFile, List<AbstractIssue>>> entrySet() {
+            return new AbstractSet<Entry<VirtualFile, List<AbstractIssue>>>() {
+                @NotNull
+                @Override
+                public Iterator<Entry<VirtualFile, List<AbstractIssue>>> iterator() {
+                    int fileCount = fileCount();
+                    return new Iterator<Entry<VirtualFile, List<AbstractIssue>>>() {
+                        private int fileId;
+
+                        @Override
+                        public boolean hasNext() {
+                            // 跳过已移除的文件
+                            while (fileId < fileCount && !isLive(fileId)) {
+                                fileId++;
+                            }
+                            return fileId < fileCount;
+                        }
+
+                        @Override
+                        public Entry<VirtualFile, List<AbstractIssue>> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int current = fileId++;
+                            return new SimpleImmutableEntry<>(getFile(current), getRowList(current));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return liveFileCount();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import org.jetbrains.annotations.Nullable;
+
+public enum IssueType {
+    BUG,
+    VULNERABILITY,
+    CODE_SMELL,
+    SECURITY_HOTSPOT;
+
+    /**
+     * @return 规则类型对应的问题类型, 暂不支持的类型返回null
+     */
+    @Nullable
+    public static IssueType of(@Nullable String type) {
+        if (type == null) {
+            return null;
+        }
+        for (IssueType value : values()) {
+            if (value.name().equals(type)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -21,6 +21,8 @@
 
 package com.github.intellij.plugin.sonar.core;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.FutureTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -31,6 +33,8 @@ import com.github.intellij.plugin.sonar.messages.MessageBusManager;
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
 import com.github.intellij.plugin.sonar.service.ProblemCacheService;
 import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.sonarsource.scanner.api.LogOutput;
 
 import static java.util.regex.Pattern.CASE_INSENSITIVE;
@@ -40,10 +44,31 @@ public class LogOutputImpl implements LogOutput {
     private static final Pattern PROFILE_LANGUAGE_PATTERN = Pattern.compile(PROFILE_LANGUAGE_REGEX, CASE_INSENSITIVE);
 
     private Project project;
+    private String workingDirectory;
+    private boolean parseReport;
+    private volatile File reportDir;
 
 
     public LogOutputImpl(Project project) {
+        this(project, ReportUtils.WORKING_DIRECTORY, true);
+    }
+
+    /**
+     * @param workingDirectory 本次分析的SonarScanner工作目录, 报告从其中读取
+     * @param parseReport      是否在报告生成后立即解析; 为false时只生成报告快照, 由调用方通过{@link #getReportDir()}取得后解析
+     */
+    public LogOutputImpl(Project project, String workingDirectory, boolean parseReport) {
         this.project = project;
+        this.workingDirectory = workingDirectory;
+        this.parseReport = parseReport;
+    }
+
+    /**
+     * @return 本次分析生成的报告快照目录, 报告还未生成或快照失败时返回null
+     */
+    @Nullable
+    public File getReportDir() {
+        return reportDir;
     }
 
     @Override
@@ -57,35 +82,25 @@ public class LogOutputImpl implements LogOutput {
          }
 
         if (formattedMessage.startsWith("Analysis report generated in")) {
-            MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.copy.start"), Level.INFO);
-            ReportUtils.copyReportDir(project);
-            MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.copy.success"), Level.INFO);
-
-            FutureTask<Report> task = new FutureTask<>(() -> {
-                MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.parse.start"), Level.INFO);
-                Report report = ReportUtils.createReport(project);
-                ProblemCacheService problemCacheService = ProblemCacheService.getInstance(project);
-                problemCacheService.setIssues(report.getIssues());
-                problemCacheService.setStats(
-                        report.getBugCount(),
-                        report.getCodeSmellCount(),
-                        report.getVulnerabilityCount(),
-                        report.getDuplicatedBlocksCount(),
-                        report.getSecurityHotSpotCount());
-                problemCacheService.setSeverityStats(report.getBlockerCount(), report.getCriticalCount(), report.getMajorCount(), report.getMinorCount(), report.getInfoCount());
-                return report;
-            });
-
-            new Thread(task).start();
-
+            MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.snapshot.start"), Level.INFO);
             try {
-                task.get();
-                MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.parse.success"), Level.INFO);
-            } catch (Exception e) {
-                // TODO:log中抛出的异常并不会被外层捕获
+                reportDir = ReportUtils.createReportSnapshot(project, workingDirectory);
+            } catch (IOException e) {
                 MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.parse.failed", LogUtils.formatException(e)), Level.ERROR);
-                // throw new RuntimeException("报告解析出错: " + e.getMessage());
-
+                return;
+            }
+            MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.snapshot.success"), Level.INFO);
+            ReportUtils.cleanupReportSnapshotsInBackground(project, workingDirectory);
+
+            if (parseReport) {
+                try {
+                    parseReport(project, reportDir);
+                    publishParsedReports(project);
+                } catch (Exception e) {
+                    // TODO:log中抛出的异常并不会被外层捕获
+                    MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.parse.failed", LogUtils.formatException(e)), Level.ERROR);
+                    // throw new RuntimeException("报告解析出错: " + e.getMessage());
+                }
             }
         }
         EventDispatchThreadHelper.invokeLater(() -> {
@@ -100,4 +115,40 @@ public class LogOutputImpl implements LogOutput {
 
     }
 
+    /**
+     * 解析报告快照并合并到问题缓存中, 解析完成前不会发布给编辑器
+     */
+    public static void parseReport(@NotNull Project project, @NotNull File reportDir) throws Exception {
+        FutureTask<Report> task = new FutureTask<>(() -> {
+            MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.parse.start"), Level.INFO);
+            // 每解析完一个文件就合并到缓存中, 工具窗口可以在解析过程中逐步展示问题
+            ProblemCacheService problemCacheService = ProblemCacheService.getInstance(project);
+            // 列式存储中的问题对象是临时创建的, 预先计算的位置无法保留, 不需要计算
+            IssueLocationResolver locationResolver = problemCacheService.isColumnarIssueStore() ? null : new IssueLocationResolver(project);
+            try {
+                return ReportUtils.createReport(project, reportDir, (virtualFile, issues, stats) -> {
+                    problemCacheService.addIssues(virtualFile, issues, stats);
+                    if (locationResolver != null) {
+                        locationResolver.resolve(virtualFile, issues);
+                    }
+                });
+            } finally {
+                if (locationResolver != null) {
+                    locationResolver.allSubmitted();
+                }
+            }
+        });
+
+        new Thread(task).start();
+        task.get();
+    }
+
+    /**
+     * 把已解析的问题发布给编辑器并保存
+     */
+    public static void publishParsedReports(@NotNull Project project) {
+        ProblemCacheService.getInstance(project).publishSnapshot();
+        MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.parse.success"), Level.INFO);
+        IssueSnapshotStore.saveInBackground(project);
+    }
 }
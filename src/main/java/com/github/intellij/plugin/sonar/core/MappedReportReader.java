@@ -0,0 +1,183 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import org.jetbrains.annotations.NotNull;
+import org.sonar.scanner.protocol.output.FileStructure;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+/**
+ * 直接从文件缓冲区解析scanner-report中的protobuf文件, 替代每个文件都新建BufferedInputStream的ScannerReportReader.
+ * 较大的文件使用内存映射, 较小的文件读入每个线程复用的direct buffer; 解析时不开启aliasing, 消息不会引用缓冲区内容.
+ */
+public class MappedReportReader {
+    /**
+     * 超过此大小的文件才做内存映射, 小文件映射的开销比直接读取更大
+     */
+    private static final int MAP_THRESHOLD = 256 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * 未关闭或仍有映射未被回收的reader, 清理快照时据此跳过仍在使用的目录
+     */
+    private static final Set<MappedReportReader> LIVE_READERS = ConcurrentHashMap.newKeySet();
+
+    private final Path reportPath;
+    private final FileStructure fileStructure;
+    private final ThreadLocal<ByteBuffer> pooledBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE));
+    /**
+     * 映射在缓冲区被回收后才会解除, 这里只保留弱引用用来判断映射是否仍然存在
+     */
+    private final List<WeakReference<ByteBuffer>> mappedBuffers = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    public MappedReportReader(@NotNull File reportDir) {
+        this.reportPath = reportDir.toPath().toAbsolutePath().normalize();
+        this.fileStructure = new FileStructure(reportDir);
+        LIVE_READERS.add(this);
+    }
+
+    /**
+     * 解析完成后调用, 之后目录只在映射的缓冲区被回收前视为仍在使用
+     */
+    public void close() {
+        closed = true;
+        if (isReleased()) {
+            LIVE_READERS.remove(this);
+        }
+    }
+
+    /**
+     * @return 目录(或其下的目录)是否仍在被解析, 或其中的文件是否仍被内存映射
+     */
+    public static boolean isInUse(@NotNull File dir) {
+        LIVE_READERS.removeIf(MappedReportReader::isReleased);
+        Path path = dir.toPath().toAbsolutePath().normalize();
+        for (MappedReportReader reader : LIVE_READERS) {
+            if (reader.reportPath.startsWith(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isReleased() {
+        if (!closed) {
+            return false;
+        }
+        for (WeakReference<ByteBuffer> mappedBuffer : mappedBuffers) {
+            if (mappedBuffer.get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public ScannerReport.Component readComponent(int componentRef) {
+        File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
+        if (!file.exists()) {
+            throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
+        }
+        try {
+            return ScannerReport.Component.parseFrom(newCodedInput(read(file)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read component #" + componentRef + " from " + file, e);
+        }
+    }
+
+    public List<ScannerReport.Issue> readComponentIssues(int componentRef) {
+        return readDelimited(fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef), ScannerReport.Issue.parser());
+    }
+
+    public List<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
+        return readDelimited(fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef), ScannerReport.Duplication.parser());
+    }
+
+    private <T extends MessageLite> List<T> readDelimited(File file, Parser<T> parser) {
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+        try {
+            ByteBuffer buffer = read(file);
+            if (!buffer.hasRemaining()) {
+                return Collections.emptyList();
+            }
+            CodedInputStream input = newCodedInput(buffer);
+            List<T> messages = new ArrayList<>();
+            while (!input.isAtEnd()) {
+                int size = input.readRawVarint32();
+                int oldLimit = input.pushLimit(size);
+                messages.add(parser.parseFrom(input));
+                input.popLimit(oldLimit);
+            }
+            return messages;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read " + file, e);
+        }
+    }
+
+    private ByteBuffer read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAP_THRESHOLD) {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                mappedBuffers.add(new WeakReference<>(mapped));
+                return mapped;
+            }
+            ByteBuffer buffer = pooledBuffer.get();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocateDirect(Integer.highestOneBit((int) size) << 1);
+                pooledBuffer.set(buffer);
+            }
+            buffer.clear();
+            buffer.limit((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private static CodedInputStream newCodedInput(ByteBuffer buffer) {
+        CodedInputStream input = CodedInputStream.newInstance(buffer);
+        input.setSizeLimit(Integer.MAX_VALUE);
+        return input;
+    }
+}
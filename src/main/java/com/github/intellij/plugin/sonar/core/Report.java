@@ -24,34 +24,34 @@ package com.github.intellij.plugin.sonar.core;
 import java.io.File;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
-import com.github.intellij.plugin.sonar.api.RulesSearchResponse;
-import com.github.intellij.plugin.sonar.api.SonarApiImpl;
 import com.github.intellij.plugin.sonar.common.IdeaUtils;
-import com.github.intellij.plugin.sonar.common.exceptions.ApiRequestFailedException;
-import com.github.intellij.plugin.sonar.config.WorkspaceSettings;
 import com.github.intellij.plugin.sonar.messages.MessageBusManager;
-import com.github.intellij.plugin.sonar.service.ProblemCacheService;
+import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.psi.PsiFile;
+import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
-import org.sonar.scanner.protocol.output.ScannerReportReader;
 import org.sonarsource.scanner.api.LogOutput;
 
 public class Report {
+    private static final int MAX_PARSE_PARALLELISM = 16;
+
     private Project project;
     private File reportDir;
+    private RuleCatalog ruleCatalog;
+    private ReportListener listener;
     private int bugCount;
     private int codeSmellCount;
     private int vulnerabilityCount;
@@ -59,15 +59,26 @@ public class Report {
     private int securityHotSpotCount;
 
     private int blockerCount,  criticalCount,  majorCount,  minorCount,  infoCount;
-    private ConcurrentMap<PsiFile, List<AbstractIssue>> issues;
+    private ConcurrentMap<VirtualFile, List<AbstractIssue>> issues;
+    /**
+     * 同一规则的问题描述通常相同, 解析时复用同一个字符串实例
+     */
+    private ConcurrentMap<String, String> internedStrings;
     private CopyOnWriteArraySet<String> ignoreRules;
     private int ignoreIssueCount;
 
-    public Report(@NotNull Project project, @NotNull File reportDir) {
+    public Report(@NotNull Project project, @NotNull File reportDir, @NotNull RuleCatalog ruleCatalog) {
+        this(project, reportDir, ruleCatalog, null);
+    }
+
+    public Report(@NotNull Project project, @NotNull File reportDir, @NotNull RuleCatalog ruleCatalog, @Nullable ReportListener listener) {
         this.project = project;
         this.reportDir = reportDir;
+        this.ruleCatalog = ruleCatalog;
+        this.listener = listener;
         issues = new ConcurrentHashMap<>();
         ignoreRules = new CopyOnWriteArraySet<>();
+        internedStrings = new ConcurrentHashMap<>();
         analyze();
     }
 
@@ -111,7 +122,7 @@ public class Report {
         return infoCount;
     }
 
-    public ConcurrentMap<PsiFile, List<AbstractIssue>> getIssues() {
+    public ConcurrentMap<VirtualFile, List<AbstractIssue>> getIssues() {
         return issues;
     }
 
@@ -124,182 +135,225 @@ public class Report {
     }
 
     private void analyze() {
-        List<RulesSearchResponse.Rule> rules = getRules();
+        RuleInfo duplicatedBlocksRule = ruleCatalog.findRule("common-java", "DuplicatedBlocks");
         List<Integer> componentFileNumbers = getAllComponentFileNumbers();
-        ScannerReportReader reader = new ScannerReportReader(reportDir);
-        for (Integer componentFileNumber : componentFileNumbers) {
-            ScannerReport.Component component = reader.readComponent(componentFileNumber);
-            CloseableIterator<ScannerReport.Issue> reportIssues = reader.readComponentIssues(componentFileNumber);
-            CloseableIterator<ScannerReport.Duplication> reportDuplications = reader.readComponentDuplications(componentFileNumber);
-
-            String projectRelativePath;
-            File file;
-            PsiFile psiFile;
-
-            if (reportIssues.hasNext() || reportDuplications.hasNext()) {
-                projectRelativePath = component.getProjectRelativePath();
-                file = Paths.get(project.getBasePath(), projectRelativePath).toFile();
-                psiFile = IdeaUtils.getPsiFile(project, file);
-
-                if (!issues.containsKey(psiFile)) {
-                    issues.put(psiFile, new ArrayList<>());
-                }
-            } else {
-                continue;
+        MappedReportReader reader = new MappedReportReader(reportDir);
+        ComponentTable componentTable = new ComponentTable(reader, componentFileNumbers.stream().mapToInt(Integer::intValue).max().orElse(0));
+        long startTime = System.currentTimeMillis();
+
+        // 每个component一个任务, 计数在任务内累加, 全部完成后再汇总
+        ForkJoinPool pool = new ForkJoinPool(getParseParallelism());
+        try {
+            List<ForkJoinTask<ReportStats>> tasks = new ArrayList<>(componentFileNumbers.size());
+            for (Integer componentFileNumber : componentFileNumbers) {
+                tasks.add(pool.submit(() -> analyzeComponent(reader, componentTable, componentFileNumber, duplicatedBlocksRule)));
             }
+            ReportStats total = new ReportStats();
+            for (ForkJoinTask<ReportStats> task : tasks) {
+                total.add(task.join());
+            }
+            applyStats(total);
+            internedStrings.clear();
+            MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString("analysis.report.parse.timing", String.valueOf(componentFileNumbers.size()), String.valueOf(System.currentTimeMillis() - startTime)), LogOutput.Level.INFO);
+        } finally {
+            pool.shutdownNow();
+            reader.close();
+        }
+    }
 
-            while (reportIssues.hasNext()) {
-                ScannerReport.Issue reportIssue = reportIssues.next();
-                String issueRuleKey = String.format("%s:%s", reportIssue.getRuleRepository(), reportIssue.getRuleKey());
-                RulesSearchResponse.Rule rule = findRule(rules, issueRuleKey);
+    private ReportStats analyzeComponent(MappedReportReader reader, ComponentTable componentTable, int componentFileNumber, RuleInfo duplicatedBlocksRule) {
+        ReportStats stats = new ReportStats();
+        List<AbstractIssue> fileIssues = new ArrayList<>();
 
-                if (rule == null) {
-                    ignoreRules.add(issueRuleKey);
-                    ignoreIssueCount++;
-                    MessageBusManager.publishLogToEDT(project, String.format("Rule[%s] 未获取到, 展示的报告中将忽略此类型相关问题, 在后续插件更新中可能会增加支持", issueRuleKey), LogOutput.Level.ERROR);
-                    continue;
-                }
+        List<ScannerReport.Issue> reportIssues = reader.readComponentIssues(componentFileNumber);
+        List<ScannerReport.Duplication> reportDuplications = reader.readComponentDuplications(componentFileNumber);
+        if (reportIssues.isEmpty() && reportDuplications.isEmpty()) {
+            return stats;
+        }
 
-                boolean ignoreIssue = false;
-                switch (rule.getType()) {
-                    case "BUG":
-                        bugCount++;
+        String projectRelativePath = componentTable.get(componentFileNumber).getProjectRelativePath();
+        File file = Paths.get(project.getBasePath(), projectRelativePath).toFile();
+        // 只查找VirtualFile, 不需要读锁, 也不会加载PSI
+        VirtualFile virtualFile = IdeaUtils.findFileByIoFile(file);
+        if (virtualFile == null) {
+            return stats;
+        }
+
+        for (ScannerReport.Issue reportIssue : reportIssues) {
+            RuleInfo rule = ruleCatalog.findRule(reportIssue.getRuleRepository(), reportIssue.getRuleKey());
+
+            if (rule == null) {
+                String issueRuleKey = String.format("%s:%s", reportIssue.getRuleRepository(), reportIssue.getRuleKey());
+                ignoreRules.add(issueRuleKey);
+                stats.ignoreIssueCount++;
+                MessageBusManager.publishLogToEDT(project, String.format("Rule[%s] 未获取到, 展示的报告中将忽略此类型相关问题, 在后续插件更新中可能会增加支持", issueRuleKey), LogOutput.Level.ERROR);
+                continue;
+            }
+
+            boolean ignoreIssue = false;
+            IssueType type = rule.getType();
+            if (type == null) {
+                ignoreIssue = true;
+            } else {
+                switch (type) {
+                    case BUG:
+                        stats.bugCount++;
                         break;
-                    case "VULNERABILITY":
-                        vulnerabilityCount++;
+                    case VULNERABILITY:
+                        stats.vulnerabilityCount++;
                         break;
-                    case "CODE_SMELL":
-                        codeSmellCount++;
+                    case CODE_SMELL:
+                        stats.codeSmellCount++;
                         break;
-                    case "SECURITY_HOTSPOT":
-                        securityHotSpotCount++;
+                    case SECURITY_HOTSPOT:
+                        stats.securityHotSpotCount++;
                         break;
                     default:
                         ignoreIssue = true;
                         break;
                 }
+            }
 
-                switch (reportIssue.getSeverity()) {
+            Severity severity = Severity.of(reportIssue.getSeverity().name());
+            if (severity != null) {
+                switch (severity) {
                     case BLOCKER:
-                        blockerCount++;
+                        stats.blockerCount++;
                         break;
                     case CRITICAL:
-                        criticalCount++;
+                        stats.criticalCount++;
                         break;
                     case MAJOR:
-                        majorCount++;
+                        stats.majorCount++;
                         break;
                     case MINOR:
-                        minorCount++;
+                        stats.minorCount++;
                         break;
                     case INFO:
-                        infoCount++;
+                        stats.infoCount++;
                         break;
                     default:
                         //do nothing
                 }
+            }
 
-                if (ignoreIssue) {
-                    ignoreRules.add(issueRuleKey);
-                    MessageBusManager.publishLogToEDT(project, String.format("Rule[%s] type[%s] 暂未被报告解析程序支持, 展示的报告中将忽略此类型相关问题, 在后续插件更新中可能会增加支持", issueRuleKey, rule.getType()), LogOutput.Level.ERROR);
-                    continue;
-                }
-
-                // 构造函数不再使用TextRange传offset，因为可能Sonar提供的TextRange中startOffset会大于endOffset，创建TextRange时将输出一条error提示offset范围异常
-                Issue issue = new Issue(
-                        psiFile,
-                        reportIssue.getRuleRepository(),
-                        reportIssue.getRuleKey(),
-                        reportIssue.getMsg(),
-                        reportIssue.getSeverity().toString(),
-                        reportIssue.getTextRange().getStartLine(),
-                        reportIssue.getTextRange().getEndLine(),
-                        reportIssue.getTextRange().getStartOffset(),
-                        reportIssue.getTextRange().getEndOffset(),
-                        rule.getType(),
-                        rule.getName(),
-                        rule.getHtmlDesc());
-
-                issues.get(psiFile).add(issue);
+            if (ignoreIssue) {
+                ignoreRules.add(rule.getFullKey());
+                MessageBusManager.publishLogToEDT(project, String.format("Rule[%s] type[%s] 暂未被报告解析程序支持, 展示的报告中将忽略此类型相关问题, 在后续插件更新中可能会增加支持", rule.getFullKey(), rule.getTypeName()), LogOutput.Level.ERROR);
+                continue;
             }
 
-            while (reportDuplications.hasNext()) {
-                String issueRuleKey = String.format("%s:%s", "common-java", "DuplicatedBlocks");
-                RulesSearchResponse.Rule rule = findRule(rules, issueRuleKey);
+            // 构造函数不再使用TextRange传offset，因为可能Sonar提供的TextRange中startOffset会大于endOffset，创建TextRange时将输出一条error提示offset范围异常
+            Issue issue = new Issue(
+                    project,
+                    virtualFile,
+                    rule,
+                    intern(reportIssue.getMsg()),
+                    severity,
+                    reportIssue.getTextRange().getStartLine(),
+                    reportIssue.getTextRange().getEndLine(),
+                    reportIssue.getTextRange().getStartOffset(),
+                    reportIssue.getTextRange().getEndOffset());
+
+            fileIssues.add(issue);
+        }
 
-                ScannerReport.Duplication duplication = reportDuplications.next();
+        // 文件中是否已统计过重复代码问题, 每个文件只计一次code smell
+        boolean duplicationCounted = fileIssues.stream().anyMatch(n -> n.getRuleKey().equalsIgnoreCase("DuplicatedBlocks"));
+        for (ScannerReport.Duplication duplication : reportDuplications) {
+            RuleInfo rule = duplicatedBlocksRule;
 
-                if (rule == null) {
-                    ignoreRules.add(issueRuleKey);
-                    ignoreIssueCount++;
-                    MessageBusManager.publishLogToEDT(project, String.format("Rule[%s] 未获取到, 展示的报告中将忽略此类型相关问题, 在后续插件更新中可能会增加支持", issueRuleKey), LogOutput.Level.ERROR);
-                    continue;
-                }
+            if (rule == null) {
+                String issueRuleKey = "common-java:DuplicatedBlocks";
+                ignoreRules.add(issueRuleKey);
+                stats.ignoreIssueCount++;
+                MessageBusManager.publishLogToEDT(project, String.format("Rule[%s] 未获取到, 展示的报告中将忽略此类型相关问题, 在后续插件更新中可能会增加支持", issueRuleKey), LogOutput.Level.ERROR);
+                continue;
+            }
 
-                boolean currentFileNotExistDuplicatedBlocksIssue = issues.get(psiFile).stream().filter(n -> n.ruleKey.equalsIgnoreCase("DuplicatedBlocks")).findFirst().orElse(null) == null;
-                if (currentFileNotExistDuplicatedBlocksIssue) {
-                    codeSmellCount++;
-                }
+            if (!duplicationCounted) {
+                duplicationCounted = true;
+                stats.codeSmellCount++;
+            }
 
-                DuplicatedBlocksIssue issue = new DuplicatedBlocksIssue(
-                        psiFile,
-                        "common-java",
-                        "DuplicatedBlocks",
-                        rule.getSeverity(),
-                        rule.getType(),
-                        rule.getName(),
-                        rule.getHtmlDesc(),
-                        duplication.getOriginPosition().getStartLine(),
-                        duplication.getOriginPosition().getEndLine()
+            // 同一组重复代码块: 第0个为当前块, 其余为重复块, 相同(path, start, end)的块只保留一个
+            // 组内每个块对应的问题共享这一个列表, 各自的重复块为除自身以外的其他块
+            List<DuplicatedBlocksIssue.Duplicate> group = new ArrayList<>(duplication.getDuplicateCount() + 1);
+            Map<DuplicatedBlocksIssue.Duplicate, Integer> blockIndex = new HashMap<>();
+            DuplicatedBlocksIssue.Duplicate currentBlock = new DuplicatedBlocksIssue.Duplicate(
+                    "",
+                    duplication.getOriginPosition().getStartLine(),
+                    duplication.getOriginPosition().getEndLine()
+            );
+            group.add(currentBlock);
+            blockIndex.put(currentBlock, 0);
+            for (ScannerReport.Duplicate d : duplication.getDuplicateList()) {
+                DuplicatedBlocksIssue.Duplicate duplicate = new DuplicatedBlocksIssue.Duplicate(
+                        d.getOtherFileRef() == 0 ? "" : componentTable.get(d.getOtherFileRef()).getProjectRelativePath(),
+                        d.getRange().getStartLine(),
+                        d.getRange().getEndLine()
                 );
-                issues.get(psiFile).add(issue);
-                duplicatedBlocksCount++;
-
-                boolean existDuplicateInSameFile = false;
-                for (ScannerReport.Duplicate d : duplication.getDuplicateList()) {
-                    DuplicatedBlocksIssue.Duplicate duplicate = new DuplicatedBlocksIssue.Duplicate(
-                            d.getOtherFileRef() == 0 ? "" : reader.readComponent(d.getOtherFileRef()).getProjectRelativePath(),
-                            d.getRange().getStartLine(),
-                            d.getRange().getEndLine()
-                    );
-                    issue.addDuplicate(duplicate);
-                    boolean duplicateInSameFile = d.getOtherFileRef() == 0;
-                    if (duplicateInSameFile) {
-                        existDuplicateInSameFile = true;
-                    }
+                if (blockIndex.putIfAbsent(duplicate, group.size()) == null) {
+                    group.add(duplicate);
                 }
+            }
+            group = Collections.unmodifiableList(group);
 
-                if (existDuplicateInSameFile) {
-                    DuplicatedBlocksIssue.Duplicate duplicateUseCurrentBlock = new DuplicatedBlocksIssue.Duplicate(
-                            "",
-                            issue.getLineStart(),
-                            issue.getLineEnd()
-                    );
-                    issue.getDuplicates().forEach(d -> {
-                        if (StringUtil.isEmpty(d.getPath())) {
-                            DuplicatedBlocksIssue additionalIssue = new DuplicatedBlocksIssue(
-                                    psiFile,
-                                    "common-java",
-                                    "DuplicatedBlocks",
-                                    rule.getSeverity(),
-                                    rule.getType(),
-                                    rule.getName(),
-                                    rule.getHtmlDesc(),
-                                    d.getStartLine(),
-                                    d.getEndLine()
-                            );
-                            additionalIssue.addDuplicate(duplicateUseCurrentBlock);
-                            List<DuplicatedBlocksIssue.Duplicate> otherDuplicates = issue.getDuplicates().stream()
-                                    .filter(n -> !StringUtil.isEmpty(n.getPath()) || n.getStartLine() != d.getStartLine() || n.getEndLine() != d.getEndLine())
-                                    .collect(Collectors.toList());
-                            additionalIssue.addDuplicates(otherDuplicates);
-                            issues.get(psiFile).add(additionalIssue);
-                            duplicatedBlocksCount++;
-                        }
-                    });
+            // 同一文件中的重复块也生成问题
+            for (int i = 0; i < group.size(); i++) {
+                DuplicatedBlocksIssue.Duplicate block = group.get(i);
+                if (!StringUtil.isEmpty(block.getPath())) {
+                    continue;
                 }
+                fileIssues.add(new DuplicatedBlocksIssue(
+                        project,
+                        virtualFile,
+                        rule,
+                        block.getStartLine(),
+                        block.getEndLine(),
+                        DuplicatedBlocksIssue.othersOf(group, i)
+                ));
+                stats.duplicatedBlocksCount++;
             }
         }
+
+        if (!fileIssues.isEmpty()) {
+            issues.merge(virtualFile, fileIssues, Report::concat);
+        }
+        if (listener != null) {
+            listener.fileParsed(virtualFile, Collections.unmodifiableList(fileIssues), stats);
+        }
+        return stats;
+    }
+
+    private void applyStats(ReportStats stats) {
+        bugCount = stats.bugCount;
+        codeSmellCount = stats.codeSmellCount;
+        vulnerabilityCount = stats.vulnerabilityCount;
+        duplicatedBlocksCount = stats.duplicatedBlocksCount;
+        securityHotSpotCount = stats.securityHotSpotCount;
+        blockerCount = stats.blockerCount;
+        criticalCount = stats.criticalCount;
+        majorCount = stats.majorCount;
+        minorCount = stats.minorCount;
+        infoCount = stats.infoCount;
+        ignoreIssueCount = stats.ignoreIssueCount;
+    }
+
+    private String intern(String value) {
+        String existing = internedStrings.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    private static List<AbstractIssue> concat(List<AbstractIssue> a, List<AbstractIssue> b) {
+        List<AbstractIssue> ret = new ArrayList<>(a.size() + b.size());
+        ret.addAll(a);
+        ret.addAll(b);
+        return ret;
+    }
+
+    private static int getParseParallelism() {
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_PARSE_PARALLELISM));
     }
 
     private List<Integer> getAllComponentFileNumbers() {
@@ -313,29 +367,4 @@ public class Report {
         });
         return componentFileNumbers;
     }
-
-    private List<RulesSearchResponse.Rule> getRules() {
-        try {
-            Set<String> languages = new HashSet<>();
-            Set<String> sonarScannerLogProfileLanguages = ProblemCacheService.getInstance(project).getProfileLanguages();
-            if (sonarScannerLogProfileLanguages.size() != 0) {
-                languages.addAll(sonarScannerLogProfileLanguages);
-            } else {
-                languages.addAll(WorkspaceSettings.getInstance().languages);
-            }
-            List<RulesSearchResponse.Rule> rules = new SonarApiImpl(project).getRules(languages.stream().collect(Collectors.toList()));
-            return rules;
-        } catch (ApiRequestFailedException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
-    }
-
-    private @Nullable RulesSearchResponse.Rule findRule(List<RulesSearchResponse.Rule> rules, String ruleKey) {
-        RulesSearchResponse.Rule rule = rules.stream().filter(n -> n.getKey().equalsIgnoreCase(ruleKey)).findFirst().orElse(null);
-        return rule;
-        // if (rule == null) {
-        //     throw new RuntimeException(String.format("No rule named [%s] was found", ruleKey));
-        // }
-        // return rule;
-    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+public class ReportStats {
+    int bugCount;
+    int codeSmellCount;
+    int vulnerabilityCount;
+    int duplicatedBlocksCount;
+    int securityHotSpotCount;
+    int blockerCount,  criticalCount,  majorCount,  minorCount,  infoCount;
+    int ignoreIssueCount;
+
+    public int getBugCount() {
+        return bugCount;
+    }
+
+    public int getCodeSmellCount() {
+        return codeSmellCount;
+    }
+
+    public int getVulnerabilityCount() {
+        return vulnerabilityCount;
+    }
+
+    public int getDuplicatedBlocksCount() {
+        return duplicatedBlocksCount;
+    }
+
+    public int getSecurityHotSpotCount() {
+        return securityHotSpotCount;
+    }
+
+    public int getBlockerCount() {
+        return blockerCount;
+    }
+
+    public int getCriticalCount() {
+        return criticalCount;
+    }
+
+    public int getMajorCount() {
+        return majorCount;
+    }
+
+    public int getMinorCount() {
+        return minorCount;
+    }
+
+    public int getInfoCount() {
+        return infoCount;
+    }
+
+    public int getIgnoreIssueCount() {
+        return ignoreIssueCount;
+    }
+
+    public void add(ReportStats other) {
+        bugCount += other.bugCount;
+        codeSmellCount += other.codeSmellCount;
+        vulnerabilityCount += other.vulnerabilityCount;
+        duplicatedBlocksCount += other.duplicatedBlocksCount;
+        securityHotSpotCount += other.securityHotSpotCount;
+        blockerCount += other.blockerCount;
+        criticalCount += other.criticalCount;
+        majorCount += other.majorCount;
+        minorCount += other.minorCount;
+        infoCount += other.infoCount;
+        ignoreIssueCount += other.ignoreIssueCount;
+    }
+}
@@ -23,49 +23,212 @@ package com.github.intellij.plugin.sonar.core;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.github.intellij.plugin.sonar.common.IdeaUtils;
+import com.github.intellij.plugin.sonar.common.exceptions.ApiRequestFailedException;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 
-import com.intellij.openapi.util.Computable;
 import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class ReportUtils {
-    private static final String ORIGINAL_REPORT_DIR = ".idea/SonarAnalyzer/.scannerwork/scanner-report";
-    private static final String TARGET_REPORT_DIR = ".idea/SonarAnalyzer/.scannerwork/scanner-report-copy";
+    /**
+     * SonarScanner默认的工作目录, 相对于项目根目录
+     */
+    public static final String WORKING_DIRECTORY = ".idea/SonarAnalyzer/.scannerwork";
+    private static final String ORIGINAL_REPORT_DIR = "scanner-report";
+    /**
+     * 报告快照的目录. SonarScanner每次分析开始时会清空工作目录, 快照不能放在工作目录中
+     */
+    private static final String SNAPSHOTS_DIR = ".idea/SonarAnalyzer/report-snapshots";
+    /**
+     * 旧版本插件复制报告的目录, 仅用于清理
+     */
+    private static final String LEGACY_REPORT_DIR = ".idea/SonarAnalyzer/.scannerwork/scanner-report-copy";
+    private static final String CURRENT_POINTER = "current";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String TEMP_SUFFIX = ".tmp";
 
-    public static void copyReportDir(Project project) {
-        String projectPath = project.getBasePath();
-        Path originalPath = Paths.get(projectPath, ORIGINAL_REPORT_DIR);
-        Path targetPath = Paths.get(projectPath, TARGET_REPORT_DIR);
-        try {
-            FileUtils.copyDirectory(new File(originalPath.toUri()), new File(targetPath.toUri()));
-        } catch (IOException e) {
-            e.printStackTrace();
+    private static final Object SNAPSHOT_LOCK = new Object();
+
+    /**
+     * 为scanner-report生成一个新的版本快照, 并将current指向它.
+     * 快照中的文件优先使用硬链接, 文件系统不支持时才复制; 此时SonarScanner还要继续打包报告, 所以不能直接移动原目录.
+     *
+     * @return 快照目录
+     */
+    public static File createReportSnapshot(Project project) throws IOException {
+        return createReportSnapshot(project, WORKING_DIRECTORY);
+    }
+
+    /**
+     * 为指定工作目录中的scanner-report生成快照, 非默认工作目录的快照保存在以工作目录命名的子目录中
+     *
+     * @param workingDirectory 相对于项目根目录的SonarScanner工作目录
+     */
+    public static File createReportSnapshot(Project project, String workingDirectory) throws IOException {
+        Path originalPath = Paths.get(project.getBasePath(), workingDirectory, ORIGINAL_REPORT_DIR);
+        Path snapshotsPath = getSnapshotsPath(project.getBasePath(), workingDirectory);
+        synchronized (SNAPSHOT_LOCK) {
+            Files.createDirectories(snapshotsPath);
+            String snapshotName = nextSnapshotName(snapshotsPath);
+            Path tempPath = snapshotsPath.resolve(snapshotName + TEMP_SUFFIX);
+            Path snapshotPath = snapshotsPath.resolve(snapshotName);
+            linkOrCopyDirectory(originalPath, tempPath);
+            Files.move(tempPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE);
+
+            Path pointerTempPath = snapshotsPath.resolve(CURRENT_POINTER + TEMP_SUFFIX);
+            Files.write(pointerTempPath, snapshotName.getBytes(StandardCharsets.UTF_8));
+            Files.move(pointerTempPath, snapshotsPath.resolve(CURRENT_POINTER), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return snapshotPath.toFile();
+        }
+    }
+
+    /**
+     * @return current指向的报告快照目录, 不存在时返回null
+     */
+    @Nullable
+    public static File getCurrentReportDir(Project project) {
+        Path snapshotsPath = getSnapshotsPath(project.getBasePath(), WORKING_DIRECTORY);
+        String currentName = readCurrentSnapshotName(snapshotsPath);
+        if (currentName == null) {
+            return null;
         }
+        File currentDir = snapshotsPath.resolve(currentName).toFile();
+        return currentDir.isDirectory() ? currentDir : null;
+    }
+
+    /**
+     * 在后台线程中删除current以外的旧快照
+     */
+    public static void cleanupReportSnapshotsInBackground(Project project) {
+        cleanupReportSnapshotsInBackground(project, WORKING_DIRECTORY);
     }
 
-    public static void deleteReportDir(Project project) {
+    public static void cleanupReportSnapshotsInBackground(Project project, String workingDirectory) {
+        ApplicationManager.getApplication().executeOnPooledThread(() -> cleanupReportSnapshots(project, workingDirectory));
+    }
+
+    public static void cleanupReportSnapshots(Project project) {
+        cleanupReportSnapshots(project, WORKING_DIRECTORY);
+    }
+
+    public static void cleanupReportSnapshots(Project project, String workingDirectory) {
         String projectPath = IdeaUtils.getProjectPath(project).getAbsolutePath();
-        Path targetPath = Paths.get(projectPath, TARGET_REPORT_DIR);
-        if (Files.exists(targetPath)) {
+        Path snapshotsPath = getSnapshotsPath(projectPath, workingDirectory);
+        List<File> obsoleteDirs = new ArrayList<>();
+        File legacyDir = Paths.get(projectPath, LEGACY_REPORT_DIR).toFile();
+        if (WORKING_DIRECTORY.equals(workingDirectory) && legacyDir.exists()) {
+            obsoleteDirs.add(legacyDir);
+        }
+        // 加锁只为确定要删除哪些目录, 避免删掉正在生成或刚生成还未被current指向的快照
+        synchronized (SNAPSHOT_LOCK) {
+            String currentName = readCurrentSnapshotName(snapshotsPath);
+            File[] snapshotDirs = snapshotsPath.toFile().listFiles((dir, name) -> name.startsWith(SNAPSHOT_PREFIX) && !name.equals(currentName));
+            if (snapshotDirs != null) {
+                for (File snapshotDir : snapshotDirs) {
+                    // 仍在解析或有文件仍被内存映射的快照在Windows上无法删除, 留到下次清理
+                    if (!MappedReportReader.isInUse(snapshotDir)) {
+                        obsoleteDirs.add(snapshotDir);
+                    }
+                }
+            }
+        }
+        for (File obsoleteDir : obsoleteDirs) {
             try {
-                FileUtils.deleteDirectory(targetPath.toFile());
+                FileUtils.deleteDirectory(obsoleteDir);
             } catch (IOException e) {
+                // 文件可能仍被占用, 下次清理时再删除
                 e.printStackTrace();
             }
         }
     }
 
+    private static Path getSnapshotsPath(String projectPath, String workingDirectory) {
+        if (WORKING_DIRECTORY.equals(workingDirectory)) {
+            return Paths.get(projectPath, SNAPSHOTS_DIR);
+        }
+        return Paths.get(projectPath, SNAPSHOTS_DIR, Paths.get(workingDirectory).getFileName().toString());
+    }
+
+    private static String nextSnapshotName(Path snapshotsPath) {
+        long version = System.currentTimeMillis();
+        while (Files.exists(snapshotsPath.resolve(SNAPSHOT_PREFIX + version)) || Files.exists(snapshotsPath.resolve(SNAPSHOT_PREFIX + version + TEMP_SUFFIX))) {
+            version++;
+        }
+        return SNAPSHOT_PREFIX + version;
+    }
+
+    @Nullable
+    private static String readCurrentSnapshotName(Path snapshotsPath) {
+        Path pointerPath = snapshotsPath.resolve(CURRENT_POINTER);
+        if (!Files.exists(pointerPath)) {
+            return null;
+        }
+        try {
+            String name = new String(Files.readAllBytes(pointerPath), StandardCharsets.UTF_8).trim();
+            return name.isEmpty() ? null : name;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void linkOrCopyDirectory(@NotNull Path source, @NotNull Path target) throws IOException {
+        List<Path> sourcePaths;
+        try (Stream<Path> stream = Files.walk(source)) {
+            sourcePaths = stream.collect(Collectors.toList());
+        }
+        boolean linkSupported = true;
+        for (Path sourcePath : sourcePaths) {
+            Path targetPath = target.resolve(source.relativize(sourcePath).toString());
+            if (Files.isDirectory(sourcePath)) {
+                Files.createDirectories(targetPath);
+                continue;
+            }
+            if (linkSupported) {
+                try {
+                    Files.createLink(targetPath, sourcePath);
+                    continue;
+                } catch (UnsupportedOperationException | IOException e) {
+                    // 不支持硬链接(如跨盘符或FAT文件系统)时, 后续文件直接复制
+                    linkSupported = false;
+                }
+            }
+            Files.copy(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     public static Report createReport(Project project) {
-        return ApplicationManager.getApplication().runReadAction((Computable<Report>) () -> {
-            String projectPath = project.getBasePath();
-            Path reportDirPath = Paths.get(projectPath, TARGET_REPORT_DIR);
-            return new Report(project, reportDirPath.toFile());
-        });
+        File reportDir = getCurrentReportDir(project);
+        if (reportDir == null) {
+            throw new IllegalStateException("No report snapshot found");
+        }
+        return createReport(project, reportDir, null);
+    }
+
+    public static Report createReport(Project project, @NotNull File reportDir, @Nullable ReportListener listener) {
+        // 不再整体包在ReadAction中: 解析任务在多个线程中执行, 不需要读锁,
+        // 若此处持有读锁等待解析任务, 遇到排队中的写操作会造成死锁
+        return new Report(project, reportDir, createRuleCatalog(project), listener);
+    }
+
+    private static RuleCatalog createRuleCatalog(Project project) {
+        try {
+            return RuleCatalog.load(project);
+        } catch (ApiRequestFailedException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
     }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.intellij.plugin.sonar.api.RulesSearchResponse;
+import com.github.intellij.plugin.sonar.api.SonarApiImpl;
+import com.github.intellij.plugin.sonar.common.exceptions.ApiRequestFailedException;
+import com.github.intellij.plugin.sonar.config.WorkspaceSettings;
+import com.github.intellij.plugin.sonar.service.ProblemCacheService;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Active rules of one analysis, indexed by repository and rule key.
+ * Rule keys are matched case-insensitively, the same way SonarQube reports them.
+ */
+public class RuleCatalog {
+    private final Map<String, Map<String, RuleInfo>> rulesByRepositoryAndKey;
+    private int size;
+
+    public RuleCatalog(@NotNull Collection<RulesSearchResponse.Rule> rules) {
+        rulesByRepositoryAndKey = new HashMap<>();
+        for (RulesSearchResponse.Rule rule : rules) {
+            add(rule);
+        }
+    }
+
+    public static RuleCatalog load(@NotNull Project project) throws ApiRequestFailedException {
+        Set<String> languages = new HashSet<>();
+        Set<String> sonarScannerLogProfileLanguages = ProblemCacheService.getInstance(project).getProfileLanguages();
+        if (sonarScannerLogProfileLanguages.size() != 0) {
+            languages.addAll(sonarScannerLogProfileLanguages);
+        } else {
+            languages.addAll(WorkspaceSettings.getInstance().languages);
+        }
+        return new RuleCatalog(new SonarApiImpl(project).getRules(new ArrayList<>(languages)));
+    }
+
+    private void add(RulesSearchResponse.Rule rule) {
+        if (rule.getKey() == null) {
+            return;
+        }
+        // 接口返回的key格式为 repository:ruleKey
+        String fullKey = rule.getKey();
+        int separatorIndex = fullKey.indexOf(':');
+        String repository = separatorIndex > -1 ? fullKey.substring(0, separatorIndex) : rule.getRepo();
+        String ruleKey = separatorIndex > -1 ? fullKey.substring(separatorIndex + 1) : fullKey;
+        if (repository == null) {
+            return;
+        }
+
+        RuleInfo ruleInfo = new RuleInfo(repository, ruleKey, rule.getName(), rule.getHtmlDesc(), rule.getType(), Severity.of(rule.getSeverity()));
+        RuleInfo existing = rulesByRepositoryAndKey
+                .computeIfAbsent(normalize(repository), n -> new HashMap<>())
+                .putIfAbsent(normalize(ruleKey), ruleInfo);
+        if (existing != null) {
+            // 多个profile中的同一规则只保留第一个
+            return;
+        }
+        size++;
+    }
+
+    @Nullable
+    public RuleInfo findRule(@NotNull String repository, @NotNull String ruleKey) {
+        Map<String, RuleInfo> repositoryRules = rulesByRepositoryAndKey.get(normalize(repository));
+        if (repositoryRules == null) {
+            return null;
+        }
+        return repositoryRules.get(normalize(ruleKey));
+    }
+
+    @Nullable
+    public RuleInfo findRule(@NotNull String fullRuleKey) {
+        int separatorIndex = fullRuleKey.indexOf(':');
+        if (separatorIndex < 0) {
+            return null;
+        }
+        return findRule(fullRuleKey.substring(0, separatorIndex), fullRuleKey.substring(separatorIndex + 1));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static String normalize(String value) {
+        // toLowerCase在字符串已经是小写时不会创建新对象
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
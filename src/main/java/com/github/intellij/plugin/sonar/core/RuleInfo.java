@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 规则的不可变元数据, 同一规则的所有问题共享一个实例
+ */
+public final class RuleInfo {
+    private final String repository;
+    private final String key;
+    private final String fullKey;
+    private final String name;
+    private final String htmlDesc;
+    private final String typeName;
+    private final IssueType type;
+    private final Severity severity;
+
+    public RuleInfo(@NotNull String repository, @NotNull String key, String name, String htmlDesc, String typeName, @Nullable Severity severity) {
+        this.repository = repository;
+        this.key = key;
+        this.fullKey = repository + ":" + key;
+        this.name = name;
+        this.htmlDesc = htmlDesc;
+        this.typeName = typeName;
+        this.type = IssueType.of(typeName);
+        this.severity = severity;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return repository:key
+     */
+    public String getFullKey() {
+        return fullKey;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHtmlDesc() {
+        return htmlDesc;
+    }
+
+    /**
+     * @return 接口返回的原始类型名称, 包括插件暂不支持的类型
+     */
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * @return 问题类型, 插件暂不支持的类型返回null
+     */
+    @Nullable
+    public IssueType getType() {
+        return type;
+    }
+
+    /**
+     * @return 规则的默认严重级别
+     */
+    @Nullable
+    public Severity getSeverity() {
+        return severity;
+    }
+}
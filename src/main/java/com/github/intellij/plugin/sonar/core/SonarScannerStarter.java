@@ -27,6 +27,7 @@ import com.github.intellij.plugin.sonar.common.EventDispatchThreadHelper;
 import com.github.intellij.plugin.sonar.common.LogUtils;
 import com.github.intellij.plugin.sonar.common.SettingsUtils;
 import com.github.intellij.plugin.sonar.common.exceptions.ConfigException;
+import com.github.intellij.plugin.sonar.config.WorkspaceSettings;
 import com.github.intellij.plugin.sonar.extensions.ToolWindowFactoryImpl;
 import com.github.intellij.plugin.sonar.gui.common.BalloonTipFactory;
 import com.github.intellij.plugin.sonar.messages.AnalysisAbortingListener;
@@ -99,7 +100,8 @@ public abstract class SonarScannerStarter implements AnalysisAbortingListener {
 
     public final void start() {
         EventDispatchThreadHelper.checkEDT();
-        ProblemCacheService.getInstance(project).setAnalyzeScope(createAnalyzeScope());
+        final AnalyzeScope analyzeScope = createAnalyzeScope();
+        ProblemCacheService.getInstance(project).setAnalyzeScope(analyzeScope);
         MessageBusManager.publishAnalysisStarted(project);
 
         if (!ApplicationManager.getApplication().isUnitTestMode()) {
@@ -117,50 +119,80 @@ public abstract class SonarScannerStarter implements AnalysisAbortingListener {
         }
 
         final CompilerManager compilerManager = CompilerManager.getInstance(project);
-        createCompileScope(compilerManager, compileScope -> {
+        createCompileScope(compilerManager, analyzeScope, compileScope -> {
             if (compileScope != null) {
-                MessageBusManager.publishLog(project, "Start build project [" + project.getName() + "]", LogOutput.Level.INFO);
-
                 finalizeCompileScope(compileScope);
-                compilerManager.make(compileScope, (aborted, errors, warnings, compileContext) -> {
+                // жǷҪ, EDTִ
+                ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                    boolean upToDate;
                     try {
-                        ToolWindowFactoryImpl.showWindowContent(ToolWindowFactoryImpl.getWindow(project), 1);
-                        if (aborted) {
-                            MessageBusManager.publishLog(project, "build aborted", LogOutput.Level.ERROR);
-                        }
-                        if (errors > 0) {
-                            MessageBusManager.publishLog(project, "build failed", LogOutput.Level.ERROR);
-                        }
-                        if (aborted || errors > 0) {
-                            MessageBusManager.publishAnalysisFinished(project, new Object(), null);
+                        upToDate = compilerManager.isUpToDate(compileScope);
+                    } catch (RuntimeException e) {
+                        LOGGER.warn(e);
+                        upToDate = false;
+                    }
+                    final boolean skipBuild = upToDate;
+                    EventDispatchThreadHelper.invokeLater(() -> {
+                        if (project.isDisposed()) {
+                            return;
                         }
-                        // TODO: ԭҪжֻõǱŻִ
-                        // ²ԭط˱Զִм⣬˷ֹ
-                        if (!aborted && errors == 0) {
-                            EventDispatchThreadHelper.checkEDT(); // see javadoc of CompileStatusNotification
-                            // Compiler can cause dumb mode, and finished() is invoked inside.
-                            // We need to continue outside dumb mode to make activateToolWindow work f. e.
-                            DumbService.getInstance(project).runWhenSmart(() -> {
-                                EventDispatchThreadHelper.checkEDT();
-                                startImpl(true);
-                            });
+                        if (skipBuild) {
+                            MessageBusManager.publishLog(project, "Build of project [" + project.getName() + "] is up to date, skip build", LogOutput.Level.INFO);
+                            DumbService.getInstance(project).runWhenSmart(() -> startImpl(false));
+                        } else {
+                            make(compilerManager, compileScope);
                         }
-                    } catch (Exception e) {
-                        MessageBusManager.publishAnalysisFinished(project, new Object(), e);
-                    }
+                    });
                 });
             }
         });
     }
 
+    private void make(@NotNull final CompilerManager compilerManager, @NotNull final CompileScope compileScope) {
+        MessageBusManager.publishLog(project, "Start build project [" + project.getName() + "]", LogOutput.Level.INFO);
+        compilerManager.make(compileScope, (aborted, errors, warnings, compileContext) -> {
+            try {
+                ToolWindowFactoryImpl.showWindowContent(ToolWindowFactoryImpl.getWindow(project), 1);
+                if (aborted) {
+                    MessageBusManager.publishLog(project, "build aborted", LogOutput.Level.ERROR);
+                }
+                if (errors > 0) {
+                    MessageBusManager.publishLog(project, "build failed", LogOutput.Level.ERROR);
+                }
+                if (aborted || errors > 0) {
+                    MessageBusManager.publishAnalysisFinished(project, new Object(), null);
+                }
+                // TODO: ԭҪжֻõǱŻִ
+                // ²ԭط˱Զִм⣬˷ֹ
+                if (!aborted && errors == 0) {
+                    EventDispatchThreadHelper.checkEDT(); // see javadoc of CompileStatusNotification
+                    // Compiler can cause dumb mode, and finished() is invoked inside.
+                    // We need to continue outside dumb mode to make activateToolWindow work f. e.
+                    DumbService.getInstance(project).runWhenSmart(() -> {
+                        EventDispatchThreadHelper.checkEDT();
+                        startImpl(true);
+                    });
+                }
+            } catch (Exception e) {
+                MessageBusManager.publishAnalysisFinished(project, new Object(), e);
+            }
+        });
+    }
+
     @Override
     public void analysisAborting() {
         this.cancellingByUser.set(true);
     }
 
-    protected abstract void createCompileScope(
+    /**
+     * ĬֻΧڵģ鼰ģ
+     */
+    protected void createCompileScope(
             @NotNull final CompilerManager compilerManager,
-            @NotNull final Consumer<CompileScope> consumer);
+            @NotNull final AnalyzeScope analyzeScope,
+            @NotNull final Consumer<CompileScope> consumer) {
+        consumer.consume(analyzeScope.createCompileScope(compilerManager));
+    }
 
     protected abstract AnalyzeScope createAnalyzeScope();
 
@@ -238,8 +270,14 @@ public abstract class SonarScannerStarter implements AnalysisAbortingListener {
     }
 
     private void asyncStartImpl(@NotNull final ProgressIndicator indicator, final boolean justCompiled) {
+        AnalyzeScope analyzeScope = createAnalyzeScope();
+        int concurrency = WorkspaceSettings.getInstance().analysisConcurrency;
+        if (AnalyzeScope.ScopeType.PROJECT_FILES.equals(analyzeScope.getType()) && concurrency > 1) {
+            EmbeddedScannerHelper.startShardedEmbeddedScanner(project, analyzeScope, concurrency);
+            return;
+        }
         LogOutput logOutput = new LogOutputImpl(project);
-        EmbeddedScannerHelper.startEmbeddedScanner(project, createAnalyzeScope(), logOutput);
+        EmbeddedScannerHelper.startEmbeddedScanner(project, analyzeScope, logOutput);
     }
 
     private boolean configCompleted() {
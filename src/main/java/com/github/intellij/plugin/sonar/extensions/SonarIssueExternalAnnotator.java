@@ -21,17 +21,20 @@
 
 package com.github.intellij.plugin.sonar.extensions;
 
-import java.util.List;
-import java.util.Map;
 import javax.annotation.Nullable;
 
 import com.intellij.lang.annotation.AnnotationHolder;
 import com.intellij.lang.annotation.ExternalAnnotator;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
-import com.intellij.openapi.project.Project;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
 import com.github.intellij.plugin.sonar.core.AbstractIssue;
-import com.github.intellij.plugin.sonar.core.AnalyzeState;
+import com.github.intellij.plugin.sonar.core.IssueOffsetIndex;
+import com.github.intellij.plugin.sonar.core.IssueSnapshot;
 import com.github.intellij.plugin.sonar.service.ProblemCacheService;
 import org.jetbrains.annotations.NotNull;
 
@@ -39,19 +42,14 @@ public class SonarIssueExternalAnnotator extends ExternalAnnotator<SonarIssueExt
 
     @Override
     public void apply(@NotNull PsiFile file, AnnotationContext annotationResult, @NotNull AnnotationHolder holder) {
-        final Project project = file.getProject();
-
-        if (!AnalyzeState.get(project).isIdle()) {
+        if (annotationResult == null || annotationResult.index == null) {
             return;
         }
-
-        final ProblemCacheService cacheService = ProblemCacheService.getInstance(project);
-        final Map<PsiFile, List<AbstractIssue>> issues = cacheService.getIssues();
-
-        if (issues.containsKey(file)) {
-            addAnnotation(project, file, issues.get(file), holder);
+        // 后台计算期间文档又被修改时, 范围已经过期, 等待下一次分析
+        if (annotationResult.index.getModificationStamp() != annotationResult.document.getModificationStamp()) {
+            return;
         }
-
+        addAnnotation(annotationResult.index, holder);
     }
 
     @Override
@@ -61,20 +59,39 @@ public class SonarIssueExternalAnnotator extends ExternalAnnotator<SonarIssueExt
 
     @Override
     public AnnotationContext collectInformation(@NotNull PsiFile file) {
-        return new AnnotationContext();
+        final VirtualFile virtualFile = file.getVirtualFile();
+        if (virtualFile == null) {
+            return null;
+        }
+        // 分析过程中使用上一次发布的快照, 不会因为缓存被清空而看不到问题
+        final IssueSnapshot snapshot = ProblemCacheService.getInstance(file.getProject()).getPublishedSnapshot();
+        if (snapshot.getIssues(virtualFile).isEmpty()) {
+            return null;
+        }
+        final Document document = FileDocumentManager.getInstance().getDocument(virtualFile);
+        if (document == null) {
+            return null;
+        }
+        return new AnnotationContext(snapshot, virtualFile, document);
     }
 
     @Override
     @Nullable
     public AnnotationContext doAnnotate(AnnotationContext collectedInfo) {
+        if (collectedInfo == null) {
+            return null;
+        }
+        // 问题范围在后台计算, 索引按(文件, 文档修改序号)缓存在快照中, 文档未修改时直接复用
+        collectedInfo.index = ApplicationManager.getApplication().runReadAction((Computable<IssueOffsetIndex>) () ->
+                collectedInfo.snapshot.getOffsetIndex(collectedInfo.virtualFile, collectedInfo.document));
         return collectedInfo;
     }
 
-    private static void addAnnotation(Project project, PsiFile psiFile, List<AbstractIssue> issues, AnnotationHolder holder) {
-        issues.forEach(n -> {
-            holder.createErrorAnnotation(n.getTextRange(), msg(n));
-        });
-
+    private static void addAnnotation(IssueOffsetIndex index, AnnotationHolder holder) {
+        // 与行标记共用同一个索引, 问题的范围已经在建立索引时计算好
+        for (int i = 0; i < index.size(); i++) {
+            holder.createErrorAnnotation(index.getTextRange(i), msg(index.getIssue(i)));
+        }
     }
 
     private static String msg(AbstractIssue issue) {
@@ -83,5 +100,15 @@ public class SonarIssueExternalAnnotator extends ExternalAnnotator<SonarIssueExt
 
 
     public static class AnnotationContext {
+        private final IssueSnapshot snapshot;
+        private final VirtualFile virtualFile;
+        private final Document document;
+        private IssueOffsetIndex index;
+
+        AnnotationContext(IssueSnapshot snapshot, VirtualFile virtualFile, Document document) {
+            this.snapshot = snapshot;
+            this.virtualFile = virtualFile;
+            this.document = document;
+        }
     }
 }
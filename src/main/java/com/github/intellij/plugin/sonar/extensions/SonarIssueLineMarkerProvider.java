@@ -22,27 +22,25 @@
 package com.github.intellij.plugin.sonar.extensions;
 
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import com.github.intellij.plugin.sonar.gui.popup.LineMarkerProviderPopupPanel;
 import com.intellij.codeInsight.daemon.GutterIconNavigationHandler;
 import com.intellij.codeInsight.daemon.LineMarkerInfo;
 import com.intellij.codeInsight.daemon.LineMarkerProvider;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.markup.GutterIconRenderer;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.popup.JBPopup;
 import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.impl.source.tree.LeafElement;
-import com.intellij.psi.impl.source.tree.TreeUtil;
 import com.intellij.ui.awt.RelativePoint;
 import com.intellij.util.Function;
 import com.github.intellij.plugin.sonar.core.AbstractIssue;
-import com.github.intellij.plugin.sonar.core.AnalyzeState;
 import com.github.intellij.plugin.sonar.core.DuplicatedBlocksIssue;
+import com.github.intellij.plugin.sonar.core.IssueOffsetIndex;
 import com.github.intellij.plugin.sonar.service.ProblemCacheService;
 import icons.PluginIcons;
 import org.jetbrains.annotations.NotNull;
@@ -56,27 +54,22 @@ public class SonarIssueLineMarkerProvider implements LineMarkerProvider {
         }
 
         final Project project = element.getProject();
-        if (!AnalyzeState.get(project).isIdle()) {
+        final VirtualFile virtualFile = element.getContainingFile().getVirtualFile();
+        if (virtualFile == null) {
             return null;
         }
 
-        final ProblemCacheService problemCacheService = ProblemCacheService.getInstance(project);
-        final Map<PsiFile, List<AbstractIssue>> issues = problemCacheService.getIssues();
-        final PsiFile psiFile = element.getContainingFile();
-        if (!issues.containsKey(psiFile)) {
+        final Document document = FileDocumentManager.getInstance().getDocument(virtualFile);
+        if (document == null || element.getTextLength() == 0) {
             return null;
         }
 
-
-
-        final List<AbstractIssue> currentFileIssues = issues.get(psiFile);
-        final List<AbstractIssue> matchedIssues = new ArrayList<>();
-        for (AbstractIssue item : currentFileIssues) {
-            if (element == firstLeafOrNull(item.getTextRangePsiElement())) {
-                matchedIssues.add(item);
-            }
+        // 分析过程中使用上一次发布的快照, 每个叶子节点只需在索引中二分查找一次
+        final IssueOffsetIndex index = ProblemCacheService.getInstance(project).getPublishedSnapshot().getOffsetIndex(virtualFile, document);
+        if (index == null) {
+            return null;
         }
-
+        final List<AbstractIssue> matchedIssues = index.findByAnchorOffset(element.getTextRange().getStartOffset());
         if (matchedIssues.isEmpty()) {
             return null;
         }
@@ -86,11 +79,6 @@ public class SonarIssueLineMarkerProvider implements LineMarkerProvider {
 
     }
 
-    private static PsiElement firstLeafOrNull(@NotNull PsiElement element) {
-        LeafElement firstLeaf = TreeUtil.findFirstLeaf(element.getNode());
-        return firstLeaf != null ? firstLeaf.getPsi() : null;
-    }
-
     private static class IssueGutterIconNavigationHandler implements GutterIconNavigationHandler<PsiElement> {
 
         private final List<AbstractIssue> issues;
@@ -29,6 +29,7 @@ import com.intellij.ui.components.JBPanel;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
 import com.github.intellij.plugin.sonar.common.PluginConstants;
+import com.github.intellij.plugin.sonar.core.IssueSnapshotStore;
 import com.github.intellij.plugin.sonar.gui.toolwindow.LogPanel;
 import com.github.intellij.plugin.sonar.gui.toolwindow.ReportPanel;
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
@@ -42,6 +43,7 @@ public class ToolWindowFactoryImpl implements ToolWindowFactory {
         JBPanel logPanel = new LogPanel(project);
         toolWindow.getContentManager().addContent(ContentFactory.SERVICE.getInstance().createContent(reportPanel, ResourcesLoader.getString("toolWindow.tab.report"), false));
         toolWindow.getContentManager().addContent(ContentFactory.SERVICE.getInstance().createContent(logPanel, ResourcesLoader.getString("toolWindow.tab.log"), false));
+        IssueSnapshotStore.restoreInBackground(project);
     }
 
     @Nullable
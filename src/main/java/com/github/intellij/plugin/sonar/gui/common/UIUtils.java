@@ -51,9 +51,11 @@ import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.openapi.fileTypes.FileTypeManager;
 import com.intellij.openapi.fileTypes.PlainTextFileType;
 import com.intellij.openapi.fileTypes.UnknownFileType;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.ComboBox;
 import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
 import com.intellij.ui.TitledSeparator;
 import com.intellij.ui.components.JBLabel;
@@ -62,6 +64,8 @@ import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.components.JBTextArea;
 import com.intellij.util.ui.JBUI;
 import com.intellij.util.ui.UIUtil;
+import com.github.intellij.plugin.sonar.core.IssueType;
+import com.github.intellij.plugin.sonar.core.Severity;
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
 import icons.PluginIcons;
 import org.jetbrains.annotations.NotNull;
@@ -339,32 +343,38 @@ public final class UIUtils {
         return panel;
     }
 
-    public static Pair<String, Icon> typeInfo(String type) {
+    public static Pair<String, Icon> typeInfo(IssueType type) {
+        if (type == null) {
+            return new Pair<>("", null);
+        }
         switch (type) {
-            case "BUG":
+            case BUG:
                 return new Pair<>(ResourcesLoader.getString("issueType.bug"), PluginIcons.BUGS);
-            case "VULNERABILITY":
+            case VULNERABILITY:
                 return new Pair<>(ResourcesLoader.getString("issueType.vulnerability"), PluginIcons.VULNERABILITY);
-            case "CODE_SMELL":
+            case CODE_SMELL:
                 return new Pair<>(ResourcesLoader.getString("issueType.codeSmell"), PluginIcons.CODE_SMELL);
-            case "SECURITY_HOTSPOT":
+            case SECURITY_HOTSPOT:
                 return new Pair<>(ResourcesLoader.getString("issueType.securityHotspot"), PluginIcons.SECURITY_HOTSPOT);
             default:
                 return new Pair<>("", null);
         }
     }
 
-    public static Pair<String, Icon> severityInfo(String severity) {
+    public static Pair<String, Icon> severityInfo(Severity severity) {
+        if (severity == null) {
+            return new Pair<>("", null);
+        }
         switch (severity) {
-            case "BLOCKER":
+            case BLOCKER:
                 return new Pair<>(ResourcesLoader.getString("severityType.blocker"), PluginIcons.BLOCKER);
-            case "CRITICAL":
+            case CRITICAL:
                 return new Pair<>(ResourcesLoader.getString("severityType.critical"), PluginIcons.CRITICAL);
-            case "MAJOR":
+            case MAJOR:
                 return new Pair<>(ResourcesLoader.getString("severityType.major"), PluginIcons.MAJOR);
-            case "MINOR":
+            case MINOR:
                 return new Pair<>(ResourcesLoader.getString("severityType.minor"), PluginIcons.MINOR);
-            case "INFO":
+            case INFO:
                 return new Pair<>(ResourcesLoader.getString("severityType.info"), PluginIcons.INFO);
             default:
                 return new Pair<>("", null);
@@ -383,12 +393,20 @@ public final class UIUtils {
     }
 
     public static void navigateToOffset(PsiFile psiFile, int offset) {
-        OpenFileDescriptor openFileDescriptor = new OpenFileDescriptor(psiFile.getProject(), psiFile.getVirtualFile(), offset);
+        navigateToOffset(psiFile.getProject(), psiFile.getVirtualFile(), offset);
+    }
+
+    public static void navigateToOffset(Project project, VirtualFile virtualFile, int offset) {
+        OpenFileDescriptor openFileDescriptor = new OpenFileDescriptor(project, virtualFile, offset);
         openFileDescriptor.navigate(true);
     }
 
     public static void navigateToLine(PsiFile psiFile, int line) {
-        OpenFileDescriptor openFileDescriptor = new OpenFileDescriptor(psiFile.getProject(), psiFile.getVirtualFile(), line, 0);
+        navigateToLine(psiFile.getProject(), psiFile.getVirtualFile(), line);
+    }
+
+    public static void navigateToLine(Project project, VirtualFile virtualFile, int line) {
+        OpenFileDescriptor openFileDescriptor = new OpenFileDescriptor(project, virtualFile, line, 0);
         openFileDescriptor.navigate(true);
     }
 
@@ -114,7 +114,7 @@ public class IssueItemPanel extends JBPanel {
         rowRangeLabel.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                PsiFile psiFile = StringUtil.isEmpty(duplicate.getPath()) ? issue.getPsiFile() : IdeaUtils.getPsiFile(issue.getPsiFile().getProject(), duplicate.getPath());
+                PsiFile psiFile = StringUtil.isEmpty(duplicate.getPath()) ? issue.getPsiFile() : IdeaUtils.getPsiFile(issue.getProject(), duplicate.getPath());
                 UIUtils.navigateToLine(psiFile, duplicate.getStartLine() - 1);
                 ((Supplier<JBPopup>)(that.getClientProperty("IssueItemPanel.getOwnerPopupFunction"))).get().cancel();
             }
@@ -122,7 +122,7 @@ public class IssueItemPanel extends JBPanel {
 
         String duplicateFileName = "";
         if (!StringUtil.isEmpty(duplicate.getPath())) {
-            duplicateFileName = IdeaUtils.getPsiFile(issue.getPsiFile().getProject(), duplicate.getPath()).getName();
+            duplicateFileName = IdeaUtils.getPsiFile(issue.getProject(), duplicate.getPath()).getName();
         }
         JBLabel filePathLabel = new JBLabel(duplicateFileName);
         panel.add(filePathLabel, BorderLayout.CENTER);
@@ -88,14 +88,20 @@ public class IssueCodePanel extends JBPanel {
         // 立即调用问题代码的定位会存在不能准确滚动到问题行的问题
         // 用invokeLater解决了
         SwingUtilities.invokeLater(() -> {
-            editor.getCaretModel().moveToOffset(issue.getTextRange().getStartOffset());
-            editor.getScrollingModel().scrollToCaret(ScrollType.CENTER);
+            TextRange textRange = issue.getTextRange();
+            if (textRange != null) {
+                editor.getCaretModel().moveToOffset(textRange.getStartOffset());
+                editor.getScrollingModel().scrollToCaret(ScrollType.CENTER);
+            }
         });
 
     }
 
     private void addRangeHighlighter(AbstractIssue issue, Editor editor) {
         TextRange textRange = issue.getTextRange();
+        if (textRange == null) {
+            return;
+        }
         RangeMarker marker = editor.getDocument().createRangeMarker(textRange.getStartOffset(), textRange.getEndOffset());
         editor.getMarkupModel().addRangeHighlighter(
                 marker.getStartOffset(),
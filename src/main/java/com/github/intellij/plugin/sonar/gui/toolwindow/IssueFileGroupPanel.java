@@ -38,21 +38,21 @@ import com.github.intellij.plugin.sonar.gui.common.UIUtils;
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
 import com.github.intellij.plugin.sonar.service.ProblemCacheService;
 import com.intellij.openapi.project.Project;
-import com.intellij.psi.PsiFile;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.components.JBPanel;
 import com.intellij.ui.components.JBTextArea;
 import com.intellij.util.ui.JBUI;
 
 public class IssueFileGroupPanel extends JBPanel {
     private Project project;
-    private PsiFile psiFile;
+    private VirtualFile virtualFile;
     private List<AbstractIssue> issues;
     private int issueCount;
     private JBTextArea titleTextArea;
 
-    public IssueFileGroupPanel(PsiFile psiFile, List<AbstractIssue> issues) {
-        this.project = psiFile.getProject();
-        this.psiFile = psiFile;
+    public IssueFileGroupPanel(Project project, VirtualFile virtualFile, List<AbstractIssue> issues) {
+        this.project = project;
+        this.virtualFile = virtualFile;
         this.issues = issues;
         init();
     }
@@ -77,14 +77,14 @@ public class IssueFileGroupPanel extends JBPanel {
     }
 
     private void addTitleTextArea(int count) {
-        titleTextArea = UIUtils.createWrapLabelLikedTextArea(ResourcesLoader.getString("report.fileSummary", IdeaUtils.getPath(psiFile), count));
+        titleTextArea = UIUtils.createWrapLabelLikedTextArea(ResourcesLoader.getString("report.fileSummary", IdeaUtils.getPath(project, virtualFile), count));
         titleTextArea.setForeground(Color.GRAY);
         titleTextArea.setAlignmentX(LEFT_ALIGNMENT);
         add(titleTextArea);
     }
 
     private void updateTitleTextArea(int count) {
-        titleTextArea.setText(ResourcesLoader.getString("report.fileSummary", IdeaUtils.getPath(psiFile), count));
+        titleTextArea.setText(ResourcesLoader.getString("report.fileSummary", IdeaUtils.getPath(project, virtualFile), count));
     }
 
     private void addIssue(List<DuplicatedBlocksIssue> issues) {
@@ -41,12 +41,17 @@ import com.github.intellij.plugin.sonar.config.WorkspaceSettings;
 import com.github.intellij.plugin.sonar.core.AbstractIssue;
 import com.github.intellij.plugin.sonar.core.DuplicatedBlocksIssue;
 import com.github.intellij.plugin.sonar.core.Issue;
+import com.github.intellij.plugin.sonar.core.IssueSnapshotStore;
+import com.github.intellij.plugin.sonar.core.IssueType;
+import com.github.intellij.plugin.sonar.core.Severity;
 import com.github.intellij.plugin.sonar.gui.common.UIUtils;
 import com.github.intellij.plugin.sonar.messages.MessageBusManager;
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
+import com.github.intellij.plugin.sonar.service.ProblemCacheService;
 import com.intellij.ide.plugins.newui.InstallButton;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBPanel;
@@ -64,13 +69,13 @@ public class IssueItemPanel extends JBPanel {
     private AbstractIssue issue;
 
     public IssueItemPanel(Issue issue) {
-        this.project = issue.getPsiFile().getProject();
+        this.project = issue.getProject();
         this.issue = issue;
         init();
     }
 
     public IssueItemPanel(List<DuplicatedBlocksIssue> duplicatedBlocksIssues) {
-        this.project = duplicatedBlocksIssues.get(0).getPsiFile().getProject();
+        this.project = duplicatedBlocksIssues.get(0).getProject();
         this.duplicatedBlocksIssues = duplicatedBlocksIssues;
         this.isDuplicatedBlockIssue = true;
         this.issue = duplicatedBlocksIssues.get(0);
@@ -78,7 +83,7 @@ public class IssueItemPanel extends JBPanel {
     }
 
     public IssueItemPanel(AbstractIssue issue) {
-        this.project = issue.getPsiFile().getProject();
+        this.project = issue.getProject();
         this.issue = issue;
         init();
     }
@@ -161,9 +166,11 @@ public class IssueItemPanel extends JBPanel {
                     } else {
                         issue.setFixed(true);
                     }
+                    ProblemCacheService.getInstance(project).fixedStatusChanged(issue.getVirtualFile());
                     infoPanelParent.remove(fixButton);
                     addResolvedLabel(infoPanelParent);
                     MessageBusManager.publishIssueResolved(project);
+                    IssueSnapshotStore.saveInBackground(project);
                     that.revalidate();
                     ((Consumer<IssueItemPanel>)getClientProperty("RESOLVE_CALLBACK")).accept(that);
                 }
@@ -175,7 +182,7 @@ public class IssueItemPanel extends JBPanel {
         }
 
 //        String type = !isDuplicatedBlockIssue ? issue.getType() : duplicatedBlocksIssues.get(0).getType();
-        String type = issue.getType();
+        IssueType type = issue.getType();
         Pair<String, Icon> typeInfo = UIUtils.typeInfo(type);
         JBLabel typeLabel = new JBLabel(typeInfo.first, typeInfo.second, SwingConstants.LEFT);
         infoPanel.add(typeLabel);
@@ -183,7 +190,7 @@ public class IssueItemPanel extends JBPanel {
         infoPanel.add(Box.createHorizontalStrut(10));
 
 //        String severity = !isDuplicatedBlockIssue ? issue.getSeverity() : duplicatedBlocksIssues.get(0).getSeverity();
-        String severity = issue.getSeverity();
+        Severity severity = issue.getSeverity();
         Pair<String, Icon> severityInfo = UIUtils.severityInfo(severity);
         JBLabel severityLabel = new JBLabel(severityInfo.first, severityInfo.second, SwingConstants.LEFT);
         infoPanel.add(severityLabel);
@@ -229,9 +236,9 @@ public class IssueItemPanel extends JBPanel {
         highlight();
         selected = true;
         if (issue instanceof DuplicatedBlocksIssue) {
-            MessageBusManager.publishDuplicatedBlocksIssueClick(issue.getPsiFile().getProject(), Arrays.asList((DuplicatedBlocksIssue)issue));
+            MessageBusManager.publishDuplicatedBlocksIssueClick(issue.getProject(), Arrays.asList((DuplicatedBlocksIssue)issue));
         } else {
-            MessageBusManager.publishIssueClick(issue.getPsiFile().getProject(), (Issue)issue);
+            MessageBusManager.publishIssueClick(issue.getProject(), (Issue)issue);
         }
     }
 
@@ -240,7 +247,13 @@ public class IssueItemPanel extends JBPanel {
         if (dblclick || autoScrollToSource) {
             AbstractIssue targetIssue = isDuplicatedBlockIssue ? duplicatedBlocksIssues.get(0) : issue;
             // 打开源文件并定位到问题代码
-            UIUtils.navigateToOffset(targetIssue.getPsiFile(), targetIssue.getTextRange().getStartOffset());
+            TextRange textRange = targetIssue.getTextRange();
+            if (textRange != null) {
+                UIUtils.navigateToOffset(targetIssue.getProject(), targetIssue.getVirtualFile(), textRange.getStartOffset());
+            } else {
+                // 无法确定问题代码的位置时, 只按报告中的行号打开文件
+                UIUtils.navigateToLine(targetIssue.getProject(), targetIssue.getVirtualFile(), Math.max(targetIssue.getLineStart() - 1, 0));
+            }
         }
 
         if (selected) {
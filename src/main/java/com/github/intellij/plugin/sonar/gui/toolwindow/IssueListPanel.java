@@ -23,8 +23,8 @@ package com.github.intellij.plugin.sonar.gui.toolwindow;
 
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentMap;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.swing.Box;
@@ -36,7 +36,7 @@ import com.github.intellij.plugin.sonar.gui.layout.SampleVerticalScrollLayout;
 import com.github.intellij.plugin.sonar.messages.MessageBusManager;
 import com.github.intellij.plugin.sonar.service.ProblemCacheService;
 import com.intellij.openapi.project.Project;
-import com.intellij.psi.PsiFile;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.ui.components.JBPanel;
 
 public class IssueListPanel extends JBPanel {
@@ -56,12 +56,12 @@ public class IssueListPanel extends JBPanel {
         add(Box.createVerticalStrut(5));
 
         ProblemCacheService problemCacheService = ProblemCacheService.getInstance(project);
-        ConcurrentMap<PsiFile, List<AbstractIssue>> issues = problemCacheService.getFilteredIssues();
+        Map<VirtualFile, List<AbstractIssue>> issues = problemCacheService.getFilteredIssues();
         issues.entrySet().stream().filter(n -> n.getValue().size() > 0)
-                .sorted(Comparator.comparing(o -> IdeaUtils.getPath(o.getKey())))
+                .sorted(Comparator.comparing(o -> IdeaUtils.getPath(project, o.getKey())))
                 .collect(Collectors.toList())
                 .forEach(n -> {
-                    IssueFileGroupPanel issueFileGroupPanel = new IssueFileGroupPanel(n.getKey(), n.getValue());
+                    IssueFileGroupPanel issueFileGroupPanel = new IssueFileGroupPanel(project, n.getKey(), n.getValue());
                     Consumer<IssueFileGroupPanel> resolveCallback = (IssueFileGroupPanel item) -> {
                         Set<String> filters = ProblemCacheService.getInstance(project).getFilters();
                         if (filters.contains("UNRESOLVED") &&
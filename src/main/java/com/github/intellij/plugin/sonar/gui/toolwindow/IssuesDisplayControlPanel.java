@@ -37,6 +37,7 @@ import com.github.intellij.plugin.sonar.messages.IssueResolvedListener;
 import com.github.intellij.plugin.sonar.messages.MessageBusManager;
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
 import com.github.intellij.plugin.sonar.service.ProblemCacheService;
+import com.github.intellij.plugin.sonar.service.StatsSnapshot;
 import com.intellij.openapi.project.Project;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBPanel;
@@ -114,23 +115,22 @@ public class IssuesDisplayControlPanel extends JBPanel {
     }
 
     public void refresh() {
-        ProblemCacheService problemCacheService = ProblemCacheService.getInstance(project);
-        vulnerabilityCountLabel.setText(String.valueOf(problemCacheService.getVulnerabilityCount()));
-        bugCountLabel.setText(String.valueOf(problemCacheService.getBugCount()));
-        codeSmellCountLabel.setText(String.valueOf(problemCacheService.getCodeSmellCount()));
-        duplicatedBlocksCountLabel.setText(String.valueOf(problemCacheService.getDuplicatedBlocksCount()));
-        securityHotSpotCountLabel.setText(String.valueOf(problemCacheService.getSecurityHotSpotCount()));
-        updatedFilesCountLabel.setText(String.valueOf(problemCacheService.getUpdatedFilesIssueCount()));
-        notUpdatedFilesCountLabel.setText(String.valueOf(problemCacheService.getNotUpdatedFilesIssueCount()));
-        resolvedCountLabel.setText(String.valueOf(problemCacheService.getFixedIssueCount()));
-        unresolvedCountLabel.setText(String.valueOf(problemCacheService.getUnresolvedIssueCount()));
-        blockerCountLabel.setText(String.valueOf(problemCacheService.getUnresolvedIssueCount()));
-
-        blockerCountLabel.setText(String.valueOf(problemCacheService.getBlockerCount()));
-        criticalCountLabel.setText(String.valueOf(problemCacheService.getCriticalCount()));
-        majorCountLabel.setText(String.valueOf(problemCacheService.getMajorCount()));
-        minorCountLabel.setText(String.valueOf(problemCacheService.getMinorCount()));
-        infoCountLabel.setText(String.valueOf(problemCacheService.getInfoCount()));
+        StatsSnapshot stats = ProblemCacheService.getInstance(project).getStats();
+        vulnerabilityCountLabel.setText(String.valueOf(stats.getVulnerabilityCount()));
+        bugCountLabel.setText(String.valueOf(stats.getBugCount()));
+        codeSmellCountLabel.setText(String.valueOf(stats.getCodeSmellCount()));
+        duplicatedBlocksCountLabel.setText(String.valueOf(stats.getDuplicatedBlocksCount()));
+        securityHotSpotCountLabel.setText(String.valueOf(stats.getSecurityHotSpotCount()));
+        updatedFilesCountLabel.setText(String.valueOf(stats.getUpdatedFilesIssueCount()));
+        notUpdatedFilesCountLabel.setText(String.valueOf(stats.getNotUpdatedFilesIssueCount()));
+        resolvedCountLabel.setText(String.valueOf(stats.getFixedIssueCount()));
+        unresolvedCountLabel.setText(String.valueOf(stats.getUnresolvedIssueCount()));
+
+        blockerCountLabel.setText(String.valueOf(stats.getBlockerCount()));
+        criticalCountLabel.setText(String.valueOf(stats.getCriticalCount()));
+        majorCountLabel.setText(String.valueOf(stats.getMajorCount()));
+        minorCountLabel.setText(String.valueOf(stats.getMinorCount()));
+        infoCountLabel.setText(String.valueOf(stats.getInfoCount()));
     }
 
     public void reset() {
@@ -110,6 +110,21 @@ public class IssuesPanel extends JBPanel {
         }
     }
 
+    /**
+     * 报告解析过程中增量刷新, 不重置滚动条位置
+     */
+    public void update() {
+        issuesDisplayControlPanel.refresh();
+        issueListPanel.refresh();
+        if (ProblemCacheService.getInstance(project).getFilteredIssues().size() > 0) {
+            listPanelParentLayout.show(listPanelParent, "ISSUES_LIST");
+        } else {
+            listPanelParentLayout.show(listPanelParent, "ISSUES_EMPTY");
+        }
+        issueListPanel.validate();
+        issueListPanel.repaint();
+    }
+
     private void filter() {
         listScrollPane.getVerticalScrollBar().setValue(0);
         issueListPanel.refresh();
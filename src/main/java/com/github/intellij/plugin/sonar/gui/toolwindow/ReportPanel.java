@@ -26,16 +26,17 @@ import java.awt.CardLayout;
 
 import com.github.intellij.plugin.sonar.common.EventDispatchThreadHelper;
 import com.github.intellij.plugin.sonar.common.LogUtils;
+import com.github.intellij.plugin.sonar.core.AnalyzeState;
 import com.github.intellij.plugin.sonar.core.SonarScannerStarter;
 import com.github.intellij.plugin.sonar.extensions.ToolWindowFactoryImpl;
 import com.github.intellij.plugin.sonar.gui.common.BalloonTipFactory;
 import com.github.intellij.plugin.sonar.gui.common.UIUtils;
 import com.github.intellij.plugin.sonar.messages.AnalysisStateListener;
 import com.github.intellij.plugin.sonar.messages.ClearListener;
+import com.github.intellij.plugin.sonar.messages.IssuesUpdatedListener;
 import com.github.intellij.plugin.sonar.messages.MessageBusManager;
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
 import com.github.intellij.plugin.sonar.service.ProblemCacheService;
-import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.project.Project;
 import com.intellij.ui.OnePixelSplitter;
 import com.intellij.ui.components.JBPanel;
@@ -52,6 +53,7 @@ public class ReportPanel extends JBPanel implements AnalysisStateListener, Clear
 
     private IssuesPanel issuesPanel;
     private IssueDetailPanel issueDetailPanel;
+    private boolean reportShown;
 
     public ReportPanel(@NotNull Project project) {
         this.project = project;
@@ -59,6 +61,9 @@ public class ReportPanel extends JBPanel implements AnalysisStateListener, Clear
         init();
         MessageBusManager.subscribeAnalysisState(project, this, this);
         MessageBusManager.subscribe(project, this, ClearListener.TOPIC, this::clear);
+        MessageBusManager.subscribe(project, this, IssuesUpdatedListener.TOPIC, this::issuesUpdated);
+        // 工具窗口创建前可能已经恢复了上次的分析结果
+        issuesUpdated();
     }
 
     private void init() {
@@ -91,6 +96,7 @@ public class ReportPanel extends JBPanel implements AnalysisStateListener, Clear
     }
 
     public void reset() {
+        reportShown = false;
         bodyPanelLayout.show(bodyPanel, "EMPTY");
         issuesPanel.reset();
         issueDetailPanel.reset();
@@ -113,8 +119,8 @@ public class ReportPanel extends JBPanel implements AnalysisStateListener, Clear
             EventDispatchThreadHelper.invokeLater(() -> {
                 try {
                     refresh();
+                    reportShown = true;
                     bodyPanelLayout.show(bodyPanel, "REPORT");
-                    DaemonCodeAnalyzer.getInstance(project).restart();
                     ToolWindowFactoryImpl.showWindowContent(ToolWindowFactoryImpl.getWindow(project), 0);
                     BalloonTipFactory.showToolWindowInfoNotifier(project, SonarScannerStarter.createSuccessInfo().toString());
                 } catch (Exception e) {
@@ -126,8 +132,30 @@ public class ReportPanel extends JBPanel implements AnalysisStateListener, Clear
         }
     }
 
+    private void issuesUpdated() {
+        if (!ProblemCacheService.getInstance(project).isInitialized()) {
+            return;
+        }
+        issuesPanel.update();
+        if (!reportShown) {
+            // 解析出第一批问题时就展示报告, 不必等待整个报告解析完成
+            reportShown = true;
+            bodyPanelLayout.show(bodyPanel, "REPORT");
+            // 恢复上次的分析结果时不主动打开工具窗口
+            if (!AnalyzeState.get(project).isIdle()) {
+                ToolWindowFactoryImpl.showWindowContent(ToolWindowFactoryImpl.getWindow(project), 0);
+            }
+        }
+    }
+
     @Override
     public void analysisStarted() {
+        if (ProblemCacheService.getInstance(project).isInitialized()) {
+            // 只分析部分文件时保留了其他文件的结果, 继续展示
+            issueDetailPanel.reset();
+            issuesPanel.update();
+            return;
+        }
         reset();
     }
 
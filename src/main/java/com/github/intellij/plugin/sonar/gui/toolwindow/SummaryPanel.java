@@ -27,8 +27,11 @@ import java.awt.GridLayout;
 import javax.swing.BorderFactory;
 
 import com.github.intellij.plugin.sonar.gui.common.UIUtils;
+import com.github.intellij.plugin.sonar.messages.IssuesUpdatedListener;
+import com.github.intellij.plugin.sonar.messages.MessageBusManager;
 import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
 import com.github.intellij.plugin.sonar.service.ProblemCacheService;
+import com.github.intellij.plugin.sonar.service.StatsSnapshot;
 import com.intellij.openapi.project.Project;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBPanel;
@@ -50,6 +53,7 @@ public class SummaryPanel extends JBPanel {
     public SummaryPanel(Project project) {
         this.project = project;
         init();
+        MessageBusManager.subscribe(project, this, IssuesUpdatedListener.TOPIC, this::refresh);
     }
 
     private void init() {
@@ -91,12 +95,12 @@ public class SummaryPanel extends JBPanel {
     }
 
     public void refresh() {
-        ProblemCacheService problemCacheService = ProblemCacheService.getInstance(project);
-        vulnerabilityCountLabel.setText(String.valueOf(problemCacheService.getVulnerabilityCount()));
-        bugCountLabel.setText(String.valueOf(problemCacheService.getBugCount()));
-        codeSmellCountLabel.setText(String.valueOf(problemCacheService.getCodeSmellCount()));
-        duplicatedBlocksCountLabel.setText(String.valueOf(problemCacheService.getDuplicatedBlocksCount()));
-        securityHotSpotCountLabel.setText(String.valueOf(problemCacheService.getSecurityHotSpotCount()));
+        StatsSnapshot stats = ProblemCacheService.getInstance(project).getStats();
+        vulnerabilityCountLabel.setText(String.valueOf(stats.getVulnerabilityCount()));
+        bugCountLabel.setText(String.valueOf(stats.getBugCount()));
+        codeSmellCountLabel.setText(String.valueOf(stats.getCodeSmellCount()));
+        duplicatedBlocksCountLabel.setText(String.valueOf(stats.getDuplicatedBlocksCount()));
+        securityHotSpotCountLabel.setText(String.valueOf(stats.getSecurityHotSpotCount()));
     }
 
     private JBPanel createPanel() {
@@ -27,7 +27,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
-import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.project.Project;
 import com.intellij.util.messages.Topic;
 import com.github.intellij.plugin.sonar.common.EventDispatchThreadHelper;
@@ -81,8 +80,9 @@ public final class MessageBusManager {
 
     public static void publishClear(@NotNull final Project project) {
         EventDispatchThreadHelper.checkEDT();
-        ProblemCacheService.getInstance(project).reset();
-        DaemonCodeAnalyzer.getInstance(project).restart();
+        ProblemCacheService problemCacheService = ProblemCacheService.getInstance(project);
+        problemCacheService.reset();
+        problemCacheService.clearPublishedSnapshot();
         publish(project, ClearListener.TOPIC).clear();
     }
 
@@ -100,17 +100,18 @@ public final class MessageBusManager {
 
     public static void publishAnalysisStarted(@NotNull final Project project) {
         EventDispatchThreadHelper.checkEDT();
-        (new Thread(() -> ReportUtils.deleteReportDir(project))).start();
+        ReportUtils.cleanupReportSnapshotsInBackground(project);
         AnalyzeState.set(project, AnalyzeState.Started);
-        ProblemCacheService.getInstance(project).reset();
-        DaemonCodeAnalyzer.getInstance(project).restart();
+        ProblemCacheService problemCacheService = ProblemCacheService.getInstance(project);
+        // 编辑器继续使用上一次发布的问题快照, 新的结果解析完成后才替换, 这里不需要重新运行代码分析
+        problemCacheService.beginAnalysis(problemCacheService.getAnalyzeScope());
         publish(project, AnalysisStartedListener.TOPIC).analysisStarted();
     }
 
     public static void publishAnalysisStartedToEDT(@NotNull final Project project) {
         EventDispatchThreadHelper.checkNotEDT();
         EventDispatchThreadHelper.invokeLater(() -> {
-            (new Thread(() -> ReportUtils.deleteReportDir(project))).start();
+            ReportUtils.cleanupReportSnapshotsInBackground(project);
             AnalyzeState.set(project, AnalyzeState.Started);
             publish(project, AnalysisStartedListener.TOPIC).analysisStarted();
         });
@@ -169,6 +170,11 @@ public final class MessageBusManager {
         publish(project, IssueResolvedListener.TOPIC).click();
     }
 
+    public static void publishIssuesUpdated(@NotNull final Project project) {
+        EventDispatchThreadHelper.checkEDT();
+        publish(project, IssuesUpdatedListener.TOPIC).issuesUpdated();
+    }
+
     public static void publishIssueFilter(@NotNull final Project project) {
         EventDispatchThreadHelper.checkEDT();
         publish(project, IssueFilterListener.TOPIC).click();
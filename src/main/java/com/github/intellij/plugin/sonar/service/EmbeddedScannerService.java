@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.service;
+
+import java.util.Map;
+
+import com.github.intellij.plugin.sonar.api.SonarApiImpl;
+import com.github.intellij.plugin.sonar.common.IdeaUtils;
+import com.github.intellij.plugin.sonar.common.exceptions.ApiRequestFailedException;
+import com.github.intellij.plugin.sonar.messages.MessageBusManager;
+import com.github.intellij.plugin.sonar.resources.ResourcesLoader;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.sonarsource.scanner.api.EmbeddedScanner;
+import org.sonarsource.scanner.api.LogOutput;
+
+/**
+ * 按SonarQube连接缓存已启动的扫描引擎. 引擎的启动(下载/校验引擎jar, 创建隔离的类加载器)只在第一次分析时执行,
+ * 之后的分析直接复用; 连接或全局属性变化、服务器插件变化、分析失败或项目关闭时丢弃引擎.
+ * 同一个引擎同时只执行一次分析, 并行分析时各自从池中取出或新建引擎.
+ */
+public class EmbeddedScannerService implements Disposable {
+    private final Project project;
+
+    private final ScannerPool<PooledScanner> pool = new ScannerPool<>();
+
+    public EmbeddedScannerService(Project project) {
+        this.project = project;
+    }
+
+    public static EmbeddedScannerService getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, EmbeddedScannerService.class);
+    }
+
+    /**
+     * 使用缓存的引擎执行一次分析, 可以在多个线程中同时调用, 不能在EDT中调用
+     *
+     * @param globalProperties 连接相关的属性, 变化时重新启动引擎
+     * @param taskProperties   本次分析的属性
+     */
+    public void execute(@NotNull Map<String, String> globalProperties, @NotNull Map<String, String> taskProperties, @NotNull LogOutput output) {
+        long startMillis = System.currentTimeMillis();
+        String pluginsIndex = loadPluginsIndex();
+        PooledScanner pooledScanner = null;
+        if (pluginsIndex != null) {
+            pooledScanner = pool.borrow(globalProperties, pluginsIndex);
+        } else {
+            // 无法确认服务器插件是否变化, 不复用已启动的引擎
+            pool.clear();
+        }
+        boolean warm = pooledScanner != null;
+        if (pooledScanner == null) {
+            pooledScanner = new PooledScanner(globalProperties);
+        }
+        long startedMillis;
+        long finishedMillis;
+        pooledScanner.logOutput.setTarget(output);
+        try {
+            if (!warm) {
+                pooledScanner.scanner.start();
+            }
+            startedMillis = System.currentTimeMillis();
+            pooledScanner.scanner.execute(taskProperties);
+            finishedMillis = System.currentTimeMillis();
+        } finally {
+            pooledScanner.logOutput.setTarget(null);
+        }
+        // 只有分析成功的引擎才放回池中, 失败后引擎的状态不确定, 下次分析重新启动
+        if (!project.isDisposed() && pluginsIndex != null) {
+            pool.giveBack(globalProperties, pluginsIndex, pooledScanner);
+        }
+        MessageBusManager.publishLogToEDT(project, ResourcesLoader.getString(warm ? "analysis.scanner.timing.warm" : "analysis.scanner.timing.cold",
+                String.valueOf(startedMillis - startMillis), String.valueOf(finishedMillis - startedMillis)), LogOutput.Level.INFO);
+    }
+
+    /**
+     * @return 服务器已安装插件的索引, 获取失败时返回null
+     */
+    @Nullable
+    private String loadPluginsIndex() {
+        try {
+            return new SonarApiImpl(project).getInstalledPluginsIndex();
+        } catch (ApiRequestFailedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 丢弃缓存的引擎, 下次分析时重新启动
+     */
+    public void invalidate() {
+        pool.clear();
+    }
+
+    @Override
+    public void dispose() {
+        invalidate();
+    }
+
+    private static class PooledScanner {
+        private final SwitchableLogOutput logOutput = new SwitchableLogOutput();
+        private final EmbeddedScanner scanner;
+
+        PooledScanner(Map<String, String> globalProperties) {
+            this.scanner = EmbeddedScanner.create("Intellij Sonar plugin", IdeaUtils.getPluginVersion(), logOutput);
+            this.scanner.addGlobalProperties(globalProperties);
+        }
+    }
+
+    /**
+     * 引擎创建时绑定LogOutput, 复用引擎时通过它把日志转发给本次分析的LogOutput
+     */
+    private static class SwitchableLogOutput implements LogOutput {
+        private volatile LogOutput target;
+
+        void setTarget(LogOutput target) {
+            this.target = target;
+        }
+
+        @Override
+        public void log(String formattedMessage, Level level) {
+            LogOutput current = target;
+            if (current != null) {
+                current.log(formattedMessage, level);
+            }
+        }
+    }
+}
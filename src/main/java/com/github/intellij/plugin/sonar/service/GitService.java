@@ -21,30 +21,148 @@
 
 package com.github.intellij.plugin.sonar.service;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.changes.ChangeList;
+import com.intellij.openapi.vcs.changes.ChangeListAdapter;
+import com.intellij.openapi.vcs.changes.ChangeListListener;
 import com.intellij.openapi.vcs.changes.ChangeListManager;
-import com.intellij.openapi.vcs.changes.ChangeListManagerEx;
-import com.intellij.psi.PsiFile;
-import com.github.intellij.plugin.sonar.common.IdeaUtils;
+import com.intellij.openapi.vcs.changes.ChangesUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
 import org.jetbrains.annotations.NotNull;
 
-public class GitService {
+/**
+ * 维护VCS中有变更的文件集合. 第一次查询时从变更列表读取全部文件, 之后只按变更列表增删变更的事件和文件删除事件修改集合,
+ * 查询时直接返回, 每次集合变化版本号加一, 依赖变更文件的缓存可以通过版本号判断是否失效.
+ */
+public class GitService implements Disposable {
     private Project project;
 
+    private final ChangeListListener changeListListener = new ChangeListAdapter() {
+        @Override
+        public void changesAdded(Collection<Change> changes, ChangeList toList) {
+            addChanges(changes);
+        }
+
+        @Override
+        public void changesRemoved(Collection<Change> changes, ChangeList fromList) {
+            removeChanges(changes);
+        }
+    };
+
+    private final AtomicInteger changedFilesVersion = new AtomicInteger();
+    private final Set<VirtualFile> changedFiles = ConcurrentHashMap.newKeySet();
+    private final Set<VirtualFile> changedFilesView = Collections.unmodifiableSet(changedFiles);
+    private volatile boolean loaded;
+
     public GitService(Project project) {
         this.project = project;
+        ChangeListManager.getInstance(project).addChangeListListener(changeListListener);
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                if (!loaded) {
+                    return;
+                }
+                for (VFileEvent event : events) {
+                    // 被删除的文件不会再出现在变更列表中, 不必等待变更列表更新. 删除目录时其中的文件同样失效
+                    if (event instanceof VFileDeleteEvent) {
+                        removeInvalidFiles();
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return 有变更的文件, 只读
+     */
+    @NotNull
+    public Set<VirtualFile> getChangedFiles() {
+        if (!loaded) {
+            load();
+        }
+        return changedFilesView;
+    }
+
+    /**
+     * @return 变更文件集合的版本号, 集合变化时加一
+     */
+    public int getChangedFilesVersion() {
+        getChangedFiles();
+        return changedFilesVersion.get();
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        for (VirtualFile file : ChangeListManager.getInstance(project).getAffectedFiles()) {
+            if (file.isValid()) {
+                changedFiles.add(file);
+            }
+        }
+        loaded = true;
+        changedFilesVersion.incrementAndGet();
+    }
+
+    private synchronized void addChanges(Collection<Change> changes) {
+        if (!loaded) {
+            return;
+        }
+        boolean changed = false;
+        for (Change change : changes) {
+            VirtualFile file = ChangesUtil.getFilePath(change).getVirtualFile();
+            if (file != null && file.isValid()) {
+                changed |= changedFiles.add(file);
+            }
+        }
+        if (changed) {
+            changedFilesVersion.incrementAndGet();
+        }
+    }
+
+    private synchronized void removeChanges(Collection<Change> changes) {
+        if (!loaded) {
+            return;
+        }
+        ChangeListManager changeListManager = ChangeListManager.getInstance(project);
+        boolean changed = false;
+        for (Change change : changes) {
+            VirtualFile file = ChangesUtil.getFilePath(change).getVirtualFile();
+            // 变更在列表之间移动时先从原列表移除, 文件仍有变更时保留
+            if (file != null && changeListManager.getChange(file) == null) {
+                changed |= changedFiles.remove(file);
+            }
+        }
+        if (changed) {
+            changedFilesVersion.incrementAndGet();
+        }
+    }
+
+    private synchronized void removeInvalidFiles() {
+        if (changedFiles.removeIf(file -> !file.isValid())) {
+            changedFilesVersion.incrementAndGet();
+        }
     }
 
-    public List<PsiFile> getChangedFiles() {
-        ChangeListManagerEx changeListManager = (ChangeListManagerEx) ChangeListManager.getInstance(project);
-        return changeListManager.getAffectedPaths().stream().
-                map(n -> IdeaUtils.getPsiFile(project, n)).
-                filter(n -> n != null).
-                collect(Collectors.toList());
+    @Override
+    public void dispose() {
+        ChangeListManager.getInstance(project).removeChangeListListener(changeListListener);
     }
 
     public static GitService getInstance(@NotNull Project project) {
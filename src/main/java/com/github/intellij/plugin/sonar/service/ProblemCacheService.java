@@ -22,6 +22,10 @@
 package com.github.intellij.plugin.sonar.service;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,22 +33,50 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.intellij.plugin.sonar.common.EventDispatchThreadHelper;
+import com.github.intellij.plugin.sonar.config.WorkspaceSettings;
+import com.github.intellij.plugin.sonar.core.ReportStats;
+import com.github.intellij.plugin.sonar.messages.MessageBusManager;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.github.intellij.plugin.sonar.core.AbstractIssue;
 import com.github.intellij.plugin.sonar.core.AnalyzeScope;
 import com.github.intellij.plugin.sonar.core.DuplicatedBlocksIssue;
 import com.github.intellij.plugin.sonar.core.Issue;
-import org.apache.commons.lang3.StringUtils;
+import com.github.intellij.plugin.sonar.core.IssueFilterIndex;
+import com.github.intellij.plugin.sonar.core.IssueSnapshot;
+import com.github.intellij.plugin.sonar.core.IssueStore;
+import com.github.intellij.plugin.sonar.core.IssueType;
+import com.github.intellij.plugin.sonar.core.Severity;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class ProblemCacheService {
+    private static final int REFRESH_INTERVAL_MILLIS = 200;
+    private static final int DAEMON_RESTART_BATCH_SIZE = 5;
+
     private Project project;
 
     private boolean initialized = false;
-    private ConcurrentMap<PsiFile, List<AbstractIssue>> issues;
+    private ConcurrentMap<VirtualFile, List<AbstractIssue>> issues;
+    /**
+     * 开启列式存储时问题保存在这里, issues保持为空
+     */
+    private volatile IssueStore issueStore;
+    /**
+     * 每个文件的统计数据, 部分文件重新分析时按差值更新总数
+     */
+    private ConcurrentMap<VirtualFile, ReportStats> statsByFile;
     private int bugCount;
     private int codeSmellCount;
     private int vulnerabilityCount;
@@ -61,9 +93,42 @@ public class ProblemCacheService {
 
     private AnalyzeScope analyzeScope;
 
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    /**
+     * 问题数据每次变化时加一, 过滤索引和上次的过滤结果以此判断是否失效
+     */
+    private int dataVersion;
+    private IssueFilterIndex filterIndex;
+    private int filterIndexVersion;
+    private Map<VirtualFile, List<AbstractIssue>> lastFilteredIssues;
+    private Set<String> lastFilters;
+    private int lastChangedFilesVersion;
+    private int lastFilterDataVersion;
+
+    /**
+     * 每个文件计入总数的问题数和已修复数, 一个文件中的重复代码块只计一个问题
+     */
+    private final Map<VirtualFile, FileCounts> countsByFile = new HashMap<>();
+    private int fixedIssueCount;
+    private int updatedFilesIssueCount;
+    private Set<VirtualFile> updatedFiles = Collections.emptySet();
+    private int updatedFilesChangedFilesVersion = -1;
+    /**
+     * 统计数据变化时置为null, 读取时重新创建
+     */
+    private volatile StatsSnapshot stats;
+
+    /**
+     * 编辑器使用的问题快照, 只在一次分析结果完整解析后替换
+     */
+    private final AtomicReference<IssueSnapshot> publishedSnapshot = new AtomicReference<>(IssueSnapshot.EMPTY);
+
     public ProblemCacheService(Project project) {
         this.project = project;
         issues = new ConcurrentHashMap<>();
+        issueStore = createIssueStore(project);
+        statsByFile = new ConcurrentHashMap<>();
         bugCount = 0;
         codeSmellCount = 0;
         vulnerabilityCount = 0;
@@ -77,151 +142,300 @@ public class ProblemCacheService {
         filters = new HashSet<>();
     }
 
-    public ConcurrentMap<PsiFile, List<AbstractIssue>> getIssues() {
-        return issues;
+    /**
+     * @return 最近一次发布的问题快照, 分析过程中仍然是上一次的完整结果
+     */
+    @NotNull
+    public IssueSnapshot getPublishedSnapshot() {
+        return publishedSnapshot.get();
     }
 
-    public ConcurrentMap<PsiFile, List<AbstractIssue>> getFilteredIssues() {
-        if (filters.size() == 0) {
-            return issues;
-        }
-
-        boolean includeBug = filters.contains("BUG");
-        boolean includeCodeSmell = filters.contains("CODE_SMELL");
-        boolean includeVulnerability = filters.contains("VULNERABILITY");
-        boolean includeSecurityHotspot = filters.contains("SECURITY_HOTSPOT");
-        boolean includeDuplication = filters.contains("DUPLICATION");
-        boolean filterByType = includeBug || includeCodeSmell || includeVulnerability || includeSecurityHotspot || includeDuplication;
-        boolean includeUpdatedFiles = filters.contains("UPDATED_FILES");
-        boolean includeNotUpdatedFiles = filters.contains("NOT_UPDATED_FILES");
-        boolean filterByScope = includeUpdatedFiles || includeNotUpdatedFiles;
-        boolean includeResolved = filters.contains("RESOLVED");
-        boolean includeUnresolved = filters.contains("UNRESOLVED");
-        boolean filterByStatus = includeResolved || includeUnresolved;
-        boolean includeBlocker = filters.contains("BLOCKER");
-        boolean includeCritical = filters.contains("CRITICAL");
-        boolean includeMajor = filters.contains("MAJOR");
-        boolean includeMinor = filters.contains("MINOR");
-        boolean includeInfo = filters.contains("INFO");
-        boolean filterBySeverity = includeBlocker || includeCritical || includeMajor || includeMinor || includeInfo;
-
-        List<PsiFile> changedFiles = GitService.getInstance(project).getChangedFiles();
-
-        ConcurrentMap<PsiFile, List<AbstractIssue>> ret = new ConcurrentHashMap<>();
-        issues.forEach((psiFile, issues) -> {
-            List<AbstractIssue> retIssues = new ArrayList<>();
-            for (AbstractIssue issue : issues) {
-                boolean include = true;
-
-                if (filterByType) {
-                    include = false;
-
-                    if (includeBug && issue.getType().equals("BUG")) {
-                        include = true;
-                    }
-                    if (includeCodeSmell && issue.getType().equals("CODE_SMELL")) {
-                        include = true;
-                    }
-                    if (includeVulnerability && issue.getType().equals("VULNERABILITY")) {
-                        include = true;
-                    }
-                    if (includeSecurityHotspot && issue.getType().equals("SECURITY_HOTSPOT")) {
-                        include = true;
-                    }
-                    if (includeDuplication && issue instanceof DuplicatedBlocksIssue) {
-                        include = true;
-                    }
+    /**
+     * 以当前缓存中的问题发布新的快照, 并对问题有变化的文件重新运行编辑器的代码分析
+     */
+    public void publishSnapshot() {
+        IssueSnapshot oldSnapshot;
+        IssueSnapshot newSnapshot;
+        synchronized (this) {
+            oldSnapshot = publishedSnapshot.get();
+            newSnapshot = IssueSnapshot.of(oldSnapshot.getEpoch() + 1, getIssues());
+            publishedSnapshot.set(newSnapshot);
+        }
+        restartDaemon(oldSnapshot.changedFiles(newSnapshot));
+    }
 
-                    if (!include) {
-                        continue;
-                    }
+    /**
+     * 清空编辑器使用的问题快照
+     */
+    public void clearPublishedSnapshot() {
+        IssueSnapshot oldSnapshot;
+        synchronized (this) {
+            oldSnapshot = publishedSnapshot.get();
+            publishedSnapshot.set(IssueSnapshot.of(oldSnapshot.getEpoch() + 1, Collections.emptyMap()));
+        }
+        restartDaemon(oldSnapshot.getIssues().keySet());
+    }
+
+    /**
+     * 只对已打开的文件重新运行代码分析, 未打开的文件在打开时自然会分析.
+     * 每批只处理少量文件, 批次之间让出EDT
+     */
+    private void restartDaemon(Collection<VirtualFile> changedFiles) {
+        if (changedFiles.isEmpty()) {
+            return;
+        }
+        List<VirtualFile> files = new ArrayList<>(changedFiles);
+        EventDispatchThreadHelper.invokeLater(() -> {
+            if (project.isDisposed()) {
+                return;
+            }
+            FileEditorManager fileEditorManager = FileEditorManager.getInstance(project);
+            List<VirtualFile> openFiles = new ArrayList<>();
+            for (VirtualFile file : files) {
+                if (file.isValid() && fileEditorManager.isFileOpen(file)) {
+                    openFiles.add(file);
                 }
+            }
+            restartDaemonInBatches(openFiles, 0);
+        });
+    }
 
-                if (filterByScope) {
-                    include = false;
+    private void restartDaemonInBatches(List<VirtualFile> openFiles, int from) {
+        if (from >= openFiles.size() || project.isDisposed()) {
+            return;
+        }
+        int to = Math.min(from + DAEMON_RESTART_BATCH_SIZE, openFiles.size());
+        PsiManager psiManager = PsiManager.getInstance(project);
+        DaemonCodeAnalyzer daemonCodeAnalyzer = DaemonCodeAnalyzer.getInstance(project);
+        for (VirtualFile file : openFiles.subList(from, to)) {
+            PsiFile psiFile = file.isValid() ? psiManager.findFile(file) : null;
+            if (psiFile != null) {
+                daemonCodeAnalyzer.restart(psiFile);
+            }
+        }
+        if (to < openFiles.size()) {
+            EventDispatchThreadHelper.invokeLater(() -> restartDaemonInBatches(openFiles, to));
+        }
+    }
 
-                    if (includeUpdatedFiles && changedFiles.contains(issue.getPsiFile())) {
-                        include = true;
-                    }
-                    if (includeNotUpdatedFiles && !changedFiles.contains(issue.getPsiFile())) {
-                        include = true;
-                    }
+    public boolean isColumnarIssueStore() {
+        return issueStore != null;
+    }
 
-                    if (!include) {
-                        continue;
-                    }
-                }
+    public Map<VirtualFile, List<AbstractIssue>> getIssues() {
+        IssueStore store = issueStore;
+        return store != null ? store.asMap() : issues;
+    }
 
-                if (filterByStatus) {
-                    include = false;
+    public synchronized Map<VirtualFile, List<AbstractIssue>> getFilteredIssues() {
+        if (filters.size() == 0) {
+            return getIssues();
+        }
 
-                    if (includeResolved && issue.isFixed()) {
-                        include = true;
-                    }
-                    if (includeUnresolved && !issue.isFixed()) {
-                        include = true;
-                    }
+        GitService gitService = GitService.getInstance(project);
+        int changedFilesVersion = gitService.getChangedFilesVersion();
+        Set<VirtualFile> changedFiles = gitService.getChangedFiles();
+        Set<String> currentFilters = new HashSet<>(filters);
+        // 数据、过滤条件和变更文件都没有变化时直接返回上次的结果, 界面一次刷新中会多次调用
+        if (lastFilteredIssues != null && lastFilterDataVersion == dataVersion
+                && currentFilters.equals(lastFilters) && changedFilesVersion == lastChangedFilesVersion) {
+            return lastFilteredIssues;
+        }
 
-                    if (!include) {
-                        continue;
-                    }
-                }
+        if (filterIndex == null || filterIndexVersion != dataVersion) {
+            IssueStore store = issueStore;
+            filterIndex = store != null ? store.createFilterIndex() : IssueFilterIndex.of(issues);
+            filterIndexVersion = dataVersion;
+        }
+        IssueFilterIndex index = filterIndex;
 
-                if (filterBySeverity) {
-                    if(includeBlocker && StringUtils.equalsIgnoreCase(issue.getSeverity(),"BLOCKER")){
-                        include = true;
-                    } else if(includeCritical && StringUtils.equalsIgnoreCase(issue.getSeverity(),"CRITICAL")){
-                        include = true;
-                    } else if(includeMajor && StringUtils.equalsIgnoreCase(issue.getSeverity(),"MAJOR")){
-                        include = true;
-                    } else if(includeMinor && StringUtils.equalsIgnoreCase(issue.getSeverity(),"MINOR")){
-                        include = true;
-                    } else if(includeInfo && StringUtils.equalsIgnoreCase(issue.getSeverity(),"INFO")){
-                        include = true;
-                    }else {
-                        include = false;
-                    }
-                }
+        BitSet selected = new BitSet(index.size());
+        selected.set(0, index.size());
 
-                if (include) {
-                    retIssues.add(issue);
-                }
+        BitSet byType = new BitSet();
+        if (currentFilters.contains("BUG")) {
+            byType.or(index.ofType(IssueType.BUG));
+        }
+        if (currentFilters.contains("CODE_SMELL")) {
+            byType.or(index.ofType(IssueType.CODE_SMELL));
+        }
+        if (currentFilters.contains("VULNERABILITY")) {
+            byType.or(index.ofType(IssueType.VULNERABILITY));
+        }
+        if (currentFilters.contains("SECURITY_HOTSPOT")) {
+            byType.or(index.ofType(IssueType.SECURITY_HOTSPOT));
+        }
+        if (currentFilters.contains("DUPLICATION")) {
+            byType.or(index.duplications());
+        }
+        if (currentFilters.contains("BUG") || currentFilters.contains("CODE_SMELL") || currentFilters.contains("VULNERABILITY")
+                || currentFilters.contains("SECURITY_HOTSPOT") || currentFilters.contains("DUPLICATION")) {
+            selected.and(byType);
+        }
 
+        boolean includeUpdatedFiles = currentFilters.contains("UPDATED_FILES");
+        boolean includeNotUpdatedFiles = currentFilters.contains("NOT_UPDATED_FILES");
+        if (includeUpdatedFiles != includeNotUpdatedFiles) {
+            BitSet changed = index.changed(changedFiles, changedFilesVersion);
+            selected.and(includeUpdatedFiles ? changed : index.not(changed));
+        }
+
+        boolean includeResolved = currentFilters.contains("RESOLVED");
+        boolean includeUnresolved = currentFilters.contains("UNRESOLVED");
+        if (includeResolved != includeUnresolved) {
+            selected.and(includeResolved ? index.fixed() : index.not(index.fixed()));
+        }
+
+        BitSet bySeverity = new BitSet();
+        boolean filterBySeverity = false;
+        for (Severity severity : Severity.values()) {
+            if (currentFilters.contains(severity.name())) {
+                filterBySeverity = true;
+                bySeverity.or(index.ofSeverity(severity));
             }
-            if (retIssues.size() > 0) {
-                ret.put(psiFile, retIssues);
-            }
-        });
+        }
+        if (filterBySeverity) {
+            selected.and(bySeverity);
+        }
 
-        return ret;
+        lastFilteredIssues = index.select(selected);
+        lastFilters = currentFilters;
+        lastChangedFilesVersion = changedFilesVersion;
+        lastFilterDataVersion = dataVersion;
+        return lastFilteredIssues;
     }
 
-    public void setIssues(ConcurrentMap<PsiFile, List<AbstractIssue>> issues) {
-        issues.forEach(((psiFile, issueList) -> {
+    /**
+     * 问题的修复状态在界面中被修改后调用, 使过滤结果失效
+     */
+    public synchronized void fixedStatusChanged(@NotNull VirtualFile virtualFile) {
+        dataVersion++;
+        updateFileCounts(virtualFile);
+        stats = null;
+    }
+
+    public synchronized void setIssues(ConcurrentMap<VirtualFile, List<AbstractIssue>> issues) {
+        dataVersion++;
+        issues.forEach(((virtualFile, issueList) -> {
             if (issueList.size() > 0) {
-                this.issues.put(psiFile, issueList);
+                if (issueStore != null) {
+                    issueStore.addAll(virtualFile, issueList);
+                } else {
+                    this.issues.put(virtualFile, issueList);
+                }
+                updateFileCounts(virtualFile);
             }
         }));
+        stats = null;
+        publishSnapshot();
+    }
+
+    /**
+     * Merge the issues of one parsed file while the report is still being parsed.
+     * The tool window is refreshed at most once every {@link #REFRESH_INTERVAL_MILLIS} milliseconds.
+     */
+    public synchronized void addIssues(@NotNull VirtualFile virtualFile, @NotNull List<AbstractIssue> issueList, @NotNull ReportStats stats) {
+        initialized = true;
+        dataVersion++;
+        if (issueList.size() > 0 && issueStore != null) {
+            issueStore.addAll(virtualFile, issueList);
+        } else if (issueList.size() > 0) {
+            issues.merge(virtualFile, issueList, (oldValue, value) -> {
+                List<AbstractIssue> ret = new ArrayList<>(oldValue);
+                ret.addAll(value);
+                return ret;
+            });
+        }
+        statsByFile.computeIfAbsent(virtualFile, k -> new ReportStats()).add(stats);
+        applyStats(stats, 1);
+        updateFileCounts(virtualFile);
+        this.stats = null;
+        scheduleRefresh();
     }
 
-    public int getBugCount() {
-        return bugCount;
+    /**
+     * 开始新的分析. 已有分析结果且本次只分析部分文件时, 只移除范围内文件的问题并按差值更新统计,
+     * 其他文件的问题、统计和修复状态保持不变; 否则清空全部结果.
+     */
+    public synchronized void beginAnalysis(@Nullable AnalyzeScope scope) {
+        if (!initialized || scope == null || !scope.isPartial()) {
+            reset();
+            return;
+        }
+        dataVersion++;
+        Set<VirtualFile> coveredFiles = new HashSet<>();
+        for (VirtualFile virtualFile : statsByFile.keySet()) {
+            if (scope.covers(virtualFile)) {
+                coveredFiles.add(virtualFile);
+            }
+        }
+        for (VirtualFile virtualFile : coveredFiles) {
+            if (issueStore != null) {
+                issueStore.removeFile(virtualFile);
+            } else {
+                issues.remove(virtualFile);
+            }
+            applyStats(statsByFile.remove(virtualFile), -1);
+            updateFileCounts(virtualFile);
+        }
+        stats = null;
     }
 
-    public int getCodeSmellCount() {
-        return codeSmellCount;
+    private void applyStats(ReportStats stats, int sign) {
+        bugCount += sign * stats.getBugCount();
+        codeSmellCount += sign * stats.getCodeSmellCount();
+        vulnerabilityCount += sign * stats.getVulnerabilityCount();
+        duplicatedBlocksCount += sign * stats.getDuplicatedBlocksCount();
+        securityHotSpotCount += sign * stats.getSecurityHotSpotCount();
+        blockerCount += sign * stats.getBlockerCount();
+        criticalCount += sign * stats.getCriticalCount();
+        majorCount += sign * stats.getMajorCount();
+        minorCount += sign * stats.getMinorCount();
+        infoCount += sign * stats.getInfoCount();
+        ignoreIssueCount += sign * stats.getIgnoreIssueCount();
     }
 
-    public int getVulnerabilityCount() {
-        return vulnerabilityCount;
+    public Map<VirtualFile, ReportStats> getStatsByFile() {
+        return statsByFile;
     }
 
-    public int getDuplicatedBlocksCount() {
-        return duplicatedBlocksCount;
+    /**
+     * 恢复上次保存的分析结果, 已经有新的分析结果时不恢复
+     *
+     * @return 是否恢复
+     */
+    public synchronized boolean restore(@NotNull Map<VirtualFile, List<AbstractIssue>> issues, @NotNull Map<VirtualFile, ReportStats> statsByFile, @Nullable AnalyzeScope analyzeScope) {
+        if (initialized) {
+            return false;
+        }
+        Set<VirtualFile> files = new HashSet<>(statsByFile.keySet());
+        files.addAll(issues.keySet());
+        for (VirtualFile virtualFile : files) {
+            ReportStats stats = statsByFile.get(virtualFile);
+            addIssues(virtualFile, issues.getOrDefault(virtualFile, Collections.emptyList()), stats != null ? stats : new ReportStats());
+        }
+        initialized = true;
+        if (analyzeScope != null) {
+            this.analyzeScope = analyzeScope;
+        }
+        publishSnapshot();
+        return true;
     }
 
-    public int getSecurityHotSpotCount() {
-        return securityHotSpotCount;
+    private void scheduleRefresh() {
+        if (!refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> EventDispatchThreadHelper.invokeLater(() -> {
+            try {
+                if (!project.isDisposed()) {
+                    MessageBusManager.publishIssuesUpdated(project);
+                }
+            } finally {
+                // 刷新完成后才允许下一次刷新, 避免刷新耗时较长时EDT被积压的刷新占满
+                refreshScheduled.set(false);
+            }
+        }), REFRESH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     public CopyOnWriteArraySet<String> getProfileLanguages() {
@@ -232,32 +446,9 @@ public class ProblemCacheService {
         return ignoreRules;
     }
 
-    public int getIgnoreIssueCount() {
-        return ignoreIssueCount;
-    }
-
-    public int getBlockerCount() {
-        return blockerCount;
-    }
-
-    public int getCriticalCount() {
-        return criticalCount;
-    }
-
-    public int getMajorCount() {
-        return majorCount;
-    }
-
-    public int getMinorCount() {
-        return minorCount;
-    }
-
-    public int getInfoCount() {
-        return infoCount;
-    }
-
-    public void setStats(int bugCount, int codeSmellCount, int vulnerabilityCount, int duplicatedBlocksCount, int securityHotSpotCount) {
+    public synchronized void setStats(int bugCount, int codeSmellCount, int vulnerabilityCount, int duplicatedBlocksCount, int securityHotSpotCount) {
         initialized = true;
+        stats = null;
         this.bugCount = bugCount;
         this.codeSmellCount = codeSmellCount;
         this.vulnerabilityCount = vulnerabilityCount;
@@ -265,8 +456,9 @@ public class ProblemCacheService {
         this.securityHotSpotCount = securityHotSpotCount;
     }
 
-    public void setSeverityStats(int blockerCount, int criticalCount, int majorCount, int minorCount, int infoCount) {
+    public synchronized void setSeverityStats(int blockerCount, int criticalCount, int majorCount, int minorCount, int infoCount) {
         initialized = true;
+        stats = null;
         this.blockerCount = blockerCount;
         this.criticalCount = criticalCount;
         this.majorCount = majorCount;
@@ -286,9 +478,14 @@ public class ProblemCacheService {
         return analyzeScope;
     }
 
-    public void reset() {
+    public synchronized void reset() {
         initialized = false;
+        dataVersion++;
+        filterIndex = null;
+        lastFilteredIssues = null;
         issues.clear();
+        issueStore = createIssueStore(project);
+        statsByFile.clear();
         bugCount = 0;
         codeSmellCount = 0;
         vulnerabilityCount = 0;
@@ -305,54 +502,135 @@ public class ProblemCacheService {
         ignoreRules.clear();
         ignoreIssueCount = 0;
 
+        countsByFile.clear();
+        fixedIssueCount = 0;
+        updatedFilesIssueCount = 0;
+        updatedFiles = Collections.emptySet();
+        updatedFilesChangedFilesVersion = -1;
+        stats = null;
+
         filters.clear();
     }
 
-    public int getUpdatedFilesIssueCount() {
-        List<PsiFile> changedFiles = GitService.getInstance(project).getChangedFiles();
-        int count = 0;
-        for (Map.Entry<PsiFile, List<AbstractIssue>> entry : issues.entrySet()) {
-            PsiFile psiFile = entry.getKey();
-            List<AbstractIssue> issueList = entry.getValue();
-            if (changedFiles.contains(psiFile)) {
-                count += issueList.stream().filter(n -> n instanceof Issue).count();
-                count += issueList.stream().anyMatch(n -> n instanceof DuplicatedBlocksIssue) ? 1 : 0;
+    /**
+     * @return 当前的统计快照. 数据和变更文件都没有变化时直接返回上次的快照
+     */
+    @NotNull
+    public StatsSnapshot getStats() {
+        int changedFilesVersion = GitService.getInstance(project).getChangedFilesVersion();
+        StatsSnapshot ret = stats;
+        if (ret != null && ret.changedFilesVersion == changedFilesVersion) {
+            return ret;
+        }
+        synchronized (this) {
+            if (changedFilesVersion != updatedFilesChangedFilesVersion) {
+                // 变更文件集合变化时只需要遍历变更文件
+                Set<VirtualFile> changedFiles = GitService.getInstance(project).getChangedFiles();
+                int count = 0;
+                for (VirtualFile changedFile : changedFiles) {
+                    FileCounts fileCounts = countsByFile.get(changedFile);
+                    if (fileCounts != null) {
+                        count += fileCounts.issueCount;
+                    }
+                }
+                updatedFilesIssueCount = count;
+                // 变更文件集合会随事件变化, 保存一份与计数对应的副本
+                updatedFiles = new HashSet<>(changedFiles);
+                updatedFilesChangedFilesVersion = changedFilesVersion;
             }
+            ret = new StatsSnapshot(new int[]{bugCount, codeSmellCount, vulnerabilityCount, duplicatedBlocksCount, securityHotSpotCount,
+                    blockerCount, criticalCount, majorCount, minorCount, infoCount, ignoreIssueCount},
+                    fixedIssueCount, updatedFilesIssueCount, updatedFilesChangedFilesVersion);
+            stats = ret;
+            return ret;
         }
-        return count;
     }
 
-    public int getNotUpdatedFilesIssueCount() {
-        return issueTotalCount() - getUpdatedFilesIssueCount();
+    /**
+     * 重新统计一个文件的问题数和已修复数, 按差值更新总数
+     */
+    private void updateFileCounts(VirtualFile virtualFile) {
+        FileCounts fileCounts = new FileCounts();
+        IssueStore store = issueStore;
+        if (store != null) {
+            int fileId = store.getFileId(virtualFile);
+            if (fileId >= 0) {
+                int[] rows = store.getRows(fileId);
+                fileCounts.issueCount = countFileIssues(store, rows, false);
+                fileCounts.fixedCount = countFileIssues(store, rows, true);
+            }
+        } else {
+            List<AbstractIssue> issueList = issues.get(virtualFile);
+            if (issueList != null) {
+                fileCounts.issueCount = countFileIssues(issueList, false);
+                fileCounts.fixedCount = countFileIssues(issueList, true);
+            }
+        }
+        FileCounts oldCounts = fileCounts.issueCount > 0 ? countsByFile.put(virtualFile, fileCounts) : countsByFile.remove(virtualFile);
+        applyFileCounts(virtualFile, oldCounts, -1);
+        applyFileCounts(virtualFile, fileCounts, 1);
     }
 
-    public int getFixedIssueCount() {
-        int count = 0;
-        for (Map.Entry<PsiFile, List<AbstractIssue>> entry : issues.entrySet()) {
-            List<AbstractIssue> issueList = entry.getValue();
-            int normalIssueFixedCount = (int)issueList.stream().filter(n -> n instanceof Issue && n.isFixed()).count();
-            boolean duplicationIssueFixed = issueList.stream().filter(n -> n instanceof DuplicatedBlocksIssue && n.isFixed()).count() > 0;
-            count += normalIssueFixedCount + (duplicationIssueFixed ? 1 : 0);
+    private void applyFileCounts(VirtualFile virtualFile, @Nullable FileCounts fileCounts, int sign) {
+        if (fileCounts == null) {
+            return;
+        }
+        fixedIssueCount += sign * fileCounts.fixedCount;
+        if (updatedFiles.contains(virtualFile)) {
+            updatedFilesIssueCount += sign * fileCounts.issueCount;
         }
-        return count;
     }
 
-    public int getUnresolvedIssueCount() {
-        return issueTotalCount() - getFixedIssueCount();
+    private static int countFileIssues(List<AbstractIssue> issueList, boolean fixedOnly) {
+        int count = 0;
+        boolean duplicationCounted = false;
+        for (AbstractIssue issue : issueList) {
+            if (fixedOnly && !issue.isFixed()) {
+                continue;
+            }
+            if (issue instanceof Issue) {
+                count++;
+            } else if (issue instanceof DuplicatedBlocksIssue && !duplicationCounted) {
+                duplicationCounted = true;
+                count++;
+            }
+        }
+        return count;
     }
 
-    public int issueTotalCount() {
-        return bugCount + codeSmellCount + vulnerabilityCount + securityHotSpotCount;
+    /**
+     * 与统计规则一致: 普通问题逐个计数, 一个文件中的重复代码块只计一个问题
+     */
+    private static int countFileIssues(IssueStore store, int[] rows, boolean fixedOnly) {
+        int count = 0;
+        boolean duplicationCounted = false;
+        for (int row : rows) {
+            if (fixedOnly && !store.isFixed(row)) {
+                continue;
+            }
+            if (!store.isDuplication(row)) {
+                count++;
+            } else if (!duplicationCounted) {
+                duplicationCounted = true;
+                count++;
+            }
+        }
+        return count;
     }
 
-    public int severityTotalCount() {
-        return blockerCount + criticalCount + majorCount + minorCount + infoCount;
+    private static IssueStore createIssueStore(Project project) {
+        return WorkspaceSettings.getInstance().columnarIssueStore ? new IssueStore(project) : null;
     }
 
     public Set<String> getFilters() {
         return filters;
     }
 
+    private static class FileCounts {
+        int issueCount;
+        int fixedCount;
+    }
+
     public static ProblemCacheService getInstance(@NotNull Project project) {
         return ServiceManager.getService(project, ProblemCacheService.class);
     }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 空闲扫描引擎池, 引擎按启动时使用的全局属性和服务器插件索引区分, 属性或插件不同的引擎不会被取出复用.
+ * 引擎启动时从服务器下载插件, 之后不再更新, 服务器安装或升级插件后需要重新启动
+ */
+final class ScannerPool<T> {
+    private final Deque<Entry<T>> idleEntries = new ArrayDeque<>();
+
+    /**
+     * @return 以相同全局属性和插件索引启动的空闲引擎, 没有时返回null. 属性或插件不同的空闲引擎不会再被使用, 一并丢弃
+     */
+    @Nullable
+    synchronized T borrow(@NotNull Map<String, String> globalProperties, @NotNull String pluginsIndex) {
+        idleEntries.removeIf(n -> !n.globalProperties.equals(globalProperties) || !n.pluginsIndex.equals(pluginsIndex));
+        Entry<T> entry = idleEntries.pollFirst();
+        return entry == null ? null : entry.scanner;
+    }
+
+    synchronized void giveBack(@NotNull Map<String, String> globalProperties, @NotNull String pluginsIndex, @NotNull T scanner) {
+        idleEntries.addFirst(new Entry<>(new HashMap<>(globalProperties), pluginsIndex, scanner));
+    }
+
+    synchronized void clear() {
+        idleEntries.clear();
+    }
+
+    synchronized int idleCount() {
+        return idleEntries.size();
+    }
+
+    private static final class Entry<T> {
+        private final Map<String, String> globalProperties;
+        private final String pluginsIndex;
+        private final T scanner;
+
+        private Entry(Map<String, String> globalProperties, String pluginsIndex, T scanner) {
+            this.globalProperties = globalProperties;
+            this.pluginsIndex = pluginsIndex;
+            this.scanner = scanner;
+        }
+    }
+}
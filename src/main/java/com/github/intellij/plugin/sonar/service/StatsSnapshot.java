@@ -0,0 +1,136 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.service;
+
+/**
+ * 某一时刻的问题统计, 创建后不再变化. 界面一次刷新只读取一个快照, 各项数字彼此一致.
+ */
+public final class StatsSnapshot {
+    static final StatsSnapshot EMPTY = new StatsSnapshot(new int[11], 0, 0, -1);
+
+    private final int bugCount;
+    private final int codeSmellCount;
+    private final int vulnerabilityCount;
+    private final int duplicatedBlocksCount;
+    private final int securityHotSpotCount;
+    private final int blockerCount;
+    private final int criticalCount;
+    private final int majorCount;
+    private final int minorCount;
+    private final int infoCount;
+    private final int ignoreIssueCount;
+    private final int fixedIssueCount;
+    private final int updatedFilesIssueCount;
+    /**
+     * 统计更新文件中的问题时变更文件集合的版本号
+     */
+    final int changedFilesVersion;
+
+    /**
+     * @param counts 依次为bug, code smell, vulnerability, duplicated blocks, security hotspot,
+     *               blocker, critical, major, minor, info, ignore的数量
+     */
+    StatsSnapshot(int[] counts, int fixedIssueCount, int updatedFilesIssueCount, int changedFilesVersion) {
+        this.bugCount = counts[0];
+        this.codeSmellCount = counts[1];
+        this.vulnerabilityCount = counts[2];
+        this.duplicatedBlocksCount = counts[3];
+        this.securityHotSpotCount = counts[4];
+        this.blockerCount = counts[5];
+        this.criticalCount = counts[6];
+        this.majorCount = counts[7];
+        this.minorCount = counts[8];
+        this.infoCount = counts[9];
+        this.ignoreIssueCount = counts[10];
+        this.fixedIssueCount = fixedIssueCount;
+        this.updatedFilesIssueCount = updatedFilesIssueCount;
+        this.changedFilesVersion = changedFilesVersion;
+    }
+
+    public int getBugCount() {
+        return bugCount;
+    }
+
+    public int getCodeSmellCount() {
+        return codeSmellCount;
+    }
+
+    public int getVulnerabilityCount() {
+        return vulnerabilityCount;
+    }
+
+    public int getDuplicatedBlocksCount() {
+        return duplicatedBlocksCount;
+    }
+
+    public int getSecurityHotSpotCount() {
+        return securityHotSpotCount;
+    }
+
+    public int getBlockerCount() {
+        return blockerCount;
+    }
+
+    public int getCriticalCount() {
+        return criticalCount;
+    }
+
+    public int getMajorCount() {
+        return majorCount;
+    }
+
+    public int getMinorCount() {
+        return minorCount;
+    }
+
+    public int getInfoCount() {
+        return infoCount;
+    }
+
+    public int getIgnoreIssueCount() {
+        return ignoreIssueCount;
+    }
+
+    public int getFixedIssueCount() {
+        return fixedIssueCount;
+    }
+
+    public int getUnresolvedIssueCount() {
+        return issueTotalCount() - fixedIssueCount;
+    }
+
+    public int getUpdatedFilesIssueCount() {
+        return updatedFilesIssueCount;
+    }
+
+    public int getNotUpdatedFilesIssueCount() {
+        return issueTotalCount() - updatedFilesIssueCount;
+    }
+
+    public int issueTotalCount() {
+        return bugCount + codeSmellCount + vulnerabilityCount + securityHotSpotCount;
+    }
+
+    public int severityTotalCount() {
+        return blockerCount + criticalCount + majorCount + minorCount + infoCount;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ComponentTableTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File reportDir;
+    private MappedReportReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        reportDir = temporaryFolder.newFolder("scanner-report");
+        ScannerReportWriter writer = new ScannerReportWriter(reportDir);
+        writer.writeComponent(ScannerReport.Component.newBuilder()
+                .setRef(1)
+                .setType(ScannerReport.Component.ComponentType.PROJECT)
+                .build());
+        writer.writeComponent(file(2, "src/main/java/Foo.java"));
+        writer.writeComponent(file(3, "src/main/java/Bar.java"));
+        reader = new MappedReportReader(reportDir);
+    }
+
+    @After
+    public void tearDown() {
+        reader.close();
+    }
+
+    @Test
+    public void readsComponentMetadata() {
+        ComponentTable table = new ComponentTable(reader, 3);
+
+        ComponentTable.ComponentInfo info = table.get(2);
+        assertEquals(2, info.getRef());
+        assertEquals("src/main/java/Foo.java", info.getProjectRelativePath());
+        assertEquals("java", info.getLanguage());
+        assertEquals(ScannerReport.Component.ComponentType.FILE, info.getType());
+        assertEquals(ScannerReport.Component.ComponentType.PROJECT, table.get(1).getType());
+    }
+
+    @Test
+    public void readsEachComponentOnce() {
+        ComponentTable table = new ComponentTable(reader, 3);
+        ComponentTable.ComponentInfo info = table.get(3);
+
+        // 删除文件后仍能取到, 说明没有再次读取
+        assertTrue(new File(reportDir, "component-3.pb").delete());
+        assertSame(info, table.get(3));
+    }
+
+    @Test
+    public void readsRefsOutsideTableWithoutCaching() {
+        ComponentTable table = new ComponentTable(reader, 2);
+
+        ComponentTable.ComponentInfo info = table.get(3);
+        assertEquals("src/main/java/Bar.java", info.getProjectRelativePath());
+        assertNotSame(info, table.get(3));
+    }
+
+    @Test
+    public void failsOnMissingComponent() {
+        ComponentTable table = new ComponentTable(reader, 5);
+        try {
+            table.get(5);
+            fail();
+        } catch (IllegalStateException expected) {
+            // 期望抛出异常
+        }
+    }
+
+    private static ScannerReport.Component file(int ref, String path) {
+        return ScannerReport.Component.newBuilder()
+                .setRef(ref)
+                .setType(ScannerReport.Component.ComponentType.FILE)
+                .setProjectRelativePath(path)
+                .setLanguage("java")
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.github.intellij.plugin.sonar.core.IssueTestUtils.issue;
+import static com.github.intellij.plugin.sonar.core.IssueTestUtils.rule;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IssueOffsetIndexTest {
+    private static final RuleInfo RULE = rule("java", "S1068", "CODE_SMELL", Severity.MINOR);
+
+    private Project project;
+    private VirtualFile file;
+
+    @Before
+    public void setUp() {
+        project = IssueTestUtils.project();
+        file = new LightVirtualFile("Foo.java");
+    }
+
+    @Test
+    public void findsIssuesByAnchorOffset() {
+        AbstractIssue first = issue(project, file, RULE, "first", 1);
+        AbstractIssue second = issue(project, file, RULE, "second", 5);
+        AbstractIssue third = issue(project, file, RULE, "third", 9);
+        IssueOffsetIndex index = IssueOffsetIndex.of(entries(
+                new IssueOffsetIndex.Entry(120, third, new TextRange(118, 140)),
+                new IssueOffsetIndex.Entry(0, first, new TextRange(0, 20)),
+                new IssueOffsetIndex.Entry(64, second, new TextRange(60, 80))), 42L);
+
+        assertEquals(42L, index.getModificationStamp());
+        assertEquals(3, index.size());
+        assertEquals(Collections.singletonList(first), index.findByAnchorOffset(0));
+        assertEquals(Collections.singletonList(second), index.findByAnchorOffset(64));
+        assertEquals(Collections.singletonList(third), index.findByAnchorOffset(120));
+        // 按行标记位置排序后范围与问题保持对应
+        assertSame(second, index.getIssue(1));
+        assertEquals(new TextRange(60, 80), index.getTextRange(1));
+    }
+
+    @Test
+    public void returnsAllIssuesSharingAnchorInOriginalOrder() {
+        List<AbstractIssue> sameLine = new ArrayList<>();
+        List<IssueOffsetIndex.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            AbstractIssue issue = issue(project, file, RULE, "issue " + i, 3);
+            sameLine.add(issue);
+            entries.add(new IssueOffsetIndex.Entry(30, issue, new TextRange(28, 50)));
+        }
+        AbstractIssue before = issue(project, file, RULE, "before", 1);
+        AbstractIssue after = issue(project, file, RULE, "after", 6);
+        entries.add(new IssueOffsetIndex.Entry(10, before, new TextRange(10, 20)));
+        entries.add(0, new IssueOffsetIndex.Entry(70, after, new TextRange(70, 90)));
+
+        IssueOffsetIndex index = IssueOffsetIndex.of(entries, 0L);
+
+        assertEquals(sameLine, index.findByAnchorOffset(30));
+        assertEquals(Collections.singletonList(before), index.findByAnchorOffset(10));
+        assertEquals(Collections.singletonList(after), index.findByAnchorOffset(70));
+    }
+
+    @Test
+    public void returnsEmptyListForOffsetsWithoutIssues() {
+        AbstractIssue issue = issue(project, file, RULE, "msg", 2);
+        IssueOffsetIndex index = IssueOffsetIndex.of(entries(new IssueOffsetIndex.Entry(25, issue, new TextRange(20, 40))), 0L);
+
+        assertTrue(index.findByAnchorOffset(0).isEmpty());
+        assertTrue(index.findByAnchorOffset(24).isEmpty());
+        assertTrue(index.findByAnchorOffset(26).isEmpty());
+        assertTrue(IssueOffsetIndex.of(new ArrayList<>(), 0L).findByAnchorOffset(25).isEmpty());
+    }
+
+    @Test
+    public void keepsIssuesWithoutAnchorOutOfLookups() {
+        AbstractIssue unanchored = issue(project, file, RULE, "unanchored", 1);
+        AbstractIssue anchored = issue(project, file, RULE, "anchored", 1);
+        IssueOffsetIndex index = IssueOffsetIndex.of(entries(
+                new IssueOffsetIndex.Entry(0, anchored, new TextRange(0, 10)),
+                new IssueOffsetIndex.Entry(-1, unanchored, new TextRange(0, 10))), 0L);
+
+        // 没有行标记位置的问题仍然用于外部注解
+        assertEquals(2, index.size());
+        assertSame(unanchored, index.getIssue(0));
+        assertEquals(Collections.singletonList(anchored), index.findByAnchorOffset(0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void returnsReadOnlyList() {
+        AbstractIssue issue = issue(project, file, RULE, "msg", 2);
+        IssueOffsetIndex index = IssueOffsetIndex.of(entries(new IssueOffsetIndex.Entry(25, issue, new TextRange(20, 40))), 0L);
+
+        index.findByAnchorOffset(25).clear();
+    }
+
+    private static List<IssueOffsetIndex.Entry> entries(IssueOffsetIndex.Entry... entries) {
+        return new ArrayList<>(Arrays.asList(entries));
+    }
+}
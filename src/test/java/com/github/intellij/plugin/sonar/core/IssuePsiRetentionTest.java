@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.lang.ref.WeakReference;
+
+import com.github.intellij.plugin.sonar.gui.common.UIUtils;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+public class IssuePsiRetentionTest extends BasePlatformTestCase {
+    private static final RuleInfo SMELL_RULE = IssueTestUtils.rule("java", "S1481", "CODE_SMELL", Severity.MINOR);
+
+    public void testIssuesOfUnopenedFileDoNotHoldPsi() {
+        PsiFile psiFile = myFixture.addFileToProject("Foo.java", "class Foo {\n    void m() {\n        int unused = 1;\n    }\n}\n");
+        VirtualFile virtualFile = psiFile.getVirtualFile();
+        Issue issue = new Issue(getProject(), virtualFile, SMELL_RULE, "Remove this unused local variable", Severity.MINOR, 3, 3, 8, 14);
+        WeakReference<PsiFile> psiFileRef = new WeakReference<>(psiFile);
+        psiFile = null;
+
+        PlatformTestUtil.tryGcSoftlyReachableObjects();
+        assertNull("Issue keeps the PSI of an unopened file reachable", psiFileRef.get());
+
+        // PSI被回收后问题仍能重新定位并跳转
+        assertNotNull(issue.getPsiFile());
+        TextRange textRange = issue.getTextRange();
+        assertNotNull(textRange);
+        Document document = FileDocumentManager.getInstance().getDocument(virtualFile);
+        assertEquals("int unused = 1;", document.getText(textRange));
+
+        UIUtils.navigateToOffset(getProject(), virtualFile, textRange.getStartOffset());
+        Editor editor = FileEditorManager.getInstance(getProject()).getSelectedTextEditor();
+        assertNotNull(editor);
+        assertEquals(virtualFile, FileDocumentManager.getInstance().getFile(editor.getDocument()));
+        assertEquals(textRange.getStartOffset(), editor.getCaretModel().getOffset());
+    }
+}
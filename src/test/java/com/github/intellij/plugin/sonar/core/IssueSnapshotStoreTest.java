@@ -0,0 +1,274 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.github.intellij.plugin.sonar.core.IssueTestUtils.issue;
+import static com.github.intellij.plugin.sonar.core.IssueTestUtils.rule;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IssueSnapshotStoreTest {
+    private static final RuleInfo BUG_RULE = rule("java", "S2259", "BUG", Severity.MAJOR);
+    private static final RuleInfo SMELL_RULE = rule("java", "S1068", "CODE_SMELL", Severity.MINOR);
+    private static final RuleInfo DUPLICATION_RULE = rule("common-java", "DuplicatedBlocks", "CODE_SMELL", Severity.MAJOR);
+
+    private Project project;
+    private VirtualFile foo;
+    private VirtualFile bar;
+    private Map<String, VirtualFile> filesByPath;
+
+    @Before
+    public void setUp() {
+        project = IssueTestUtils.project();
+        foo = new LightVirtualFile("Foo.java");
+        bar = new LightVirtualFile("Bar.java");
+        filesByPath = new HashMap<>();
+        filesByPath.put(foo.getName(), foo);
+        filesByPath.put(bar.getName(), bar);
+    }
+
+    @Test
+    public void restoresIssues() throws Exception {
+        Issue fixedIssue = new Issue(project, foo, SMELL_RULE, "Remove this unused field", Severity.BLOCKER, 7, 8, 4, 12);
+        fixedIssue.setFixed(true);
+        List<DuplicatedBlocksIssue.Duplicate> duplicates = Arrays.asList(
+                new DuplicatedBlocksIssue.Duplicate("src/Bar.java", 1, 21),
+                new DuplicatedBlocksIssue.Duplicate("src/Baz.java", 30, 50));
+        Map<VirtualFile, List<AbstractIssue>> issues = new LinkedHashMap<>();
+        issues.put(foo, Arrays.asList(issue(project, foo, BUG_RULE, "NPE", 3), fixedIssue));
+        issues.put(bar, Arrays.asList(
+                issue(project, bar, BUG_RULE, "NPE", 12),
+                new DuplicatedBlocksIssue(project, bar, DUPLICATION_RULE, 10, 30, duplicates)));
+
+        IssueSnapshotStore.Snapshot snapshot = roundTrip(issues, Collections.emptyMap(), null);
+
+        assertEquals(4, snapshot.issueCount);
+        assertNull(snapshot.analyzeScope);
+        assertEquals(Arrays.asList(foo, bar), new ArrayList<>(snapshot.issues.keySet()));
+
+        List<AbstractIssue> fooIssues = snapshot.issues.get(foo);
+        AbstractIssue first = fooIssues.get(0);
+        assertSame(foo, first.getVirtualFile());
+        assertEquals("NPE", first.getMsg());
+        assertEquals(Severity.MAJOR, first.getSeverity());
+        assertEquals(3, first.getLineStart());
+        assertFalse(first.isFixed());
+        assertEquals("java:S2259", first.getRuleInfo().getFullKey());
+        assertEquals("Rule S2259", first.getName());
+        assertEquals("<p>S2259</p>", first.getHtmlDesc());
+        assertEquals(IssueType.BUG, first.getType());
+
+        AbstractIssue second = fooIssues.get(1);
+        assertEquals(Severity.BLOCKER, second.getSeverity());
+        assertEquals(7, second.lineStart);
+        assertEquals(8, second.lineEnd);
+        assertEquals(4, second.offsetStart);
+        assertEquals(12, second.offsetEnd);
+        assertTrue(second.isFixed());
+        assertEquals(Severity.MINOR, second.getRuleInfo().getSeverity());
+
+        // 同一规则恢复后仍共享一个实例
+        assertSame(first.getRuleInfo(), snapshot.issues.get(bar).get(0).getRuleInfo());
+
+        AbstractIssue duplication = snapshot.issues.get(bar).get(1);
+        assertTrue(duplication instanceof DuplicatedBlocksIssue);
+        assertEquals(duplicates, ((DuplicatedBlocksIssue) duplication).getDuplicates());
+        assertEquals(10, duplication.getLineStart());
+        assertEquals(30, duplication.getLineEnd());
+    }
+
+    @Test
+    public void restoresStatsAndScope() throws Exception {
+        ReportStats stats = new ReportStats();
+        stats.bugCount = 1;
+        stats.codeSmellCount = 2;
+        stats.vulnerabilityCount = 3;
+        stats.duplicatedBlocksCount = 4;
+        stats.securityHotSpotCount = 5;
+        stats.blockerCount = 6;
+        stats.criticalCount = 7;
+        stats.majorCount = 8;
+        stats.minorCount = 9;
+        stats.infoCount = 10;
+        stats.ignoreIssueCount = 11;
+        AnalyzeScope scope = new AnalyzeScope(project, AnalyzeScope.ScopeType.SELECTED_FILES, Arrays.asList(foo, bar));
+
+        IssueSnapshotStore.Snapshot snapshot = roundTrip(Collections.emptyMap(), Collections.singletonMap(foo, stats), scope);
+
+        assertEquals(0, snapshot.issueCount);
+        assertTrue(snapshot.issues.isEmpty());
+        ReportStats restored = snapshot.statsByFile.get(foo);
+        assertEquals(1, restored.bugCount);
+        assertEquals(2, restored.codeSmellCount);
+        assertEquals(3, restored.vulnerabilityCount);
+        assertEquals(4, restored.duplicatedBlocksCount);
+        assertEquals(5, restored.securityHotSpotCount);
+        assertEquals(6, restored.blockerCount);
+        assertEquals(7, restored.criticalCount);
+        assertEquals(8, restored.majorCount);
+        assertEquals(9, restored.minorCount);
+        assertEquals(10, restored.infoCount);
+        assertEquals(11, restored.ignoreIssueCount);
+        assertEquals(AnalyzeScope.ScopeType.SELECTED_FILES, snapshot.analyzeScope.getType());
+        assertEquals(Arrays.asList(foo, bar), snapshot.analyzeScope.getFiles());
+    }
+
+    @Test
+    public void keepsStringsLongerThanWriteUtfLimit() throws Exception {
+        char[] desc = new char[70 * 1024];
+        Arrays.fill(desc, '规');
+        RuleInfo longRule = new RuleInfo("java", "S100", null, new String(desc), "CODE_SMELL", null);
+
+        IssueSnapshotStore.Snapshot snapshot = roundTrip(
+                Collections.singletonMap(foo, Collections.singletonList(issue(project, foo, longRule, "msg", 1))), Collections.emptyMap(), null);
+
+        RuleInfo restored = snapshot.issues.get(foo).get(0).getRuleInfo();
+        assertEquals(new String(desc), restored.getHtmlDesc());
+        assertNull(restored.getName());
+        assertNull(restored.getSeverity());
+    }
+
+    @Test
+    public void dropsFilesThatNoLongerExist() throws Exception {
+        Map<VirtualFile, List<AbstractIssue>> issues = new LinkedHashMap<>();
+        issues.put(foo, Collections.singletonList(new DuplicatedBlocksIssue(project, foo, DUPLICATION_RULE, 1, 20,
+                Collections.singletonList(new DuplicatedBlocksIssue.Duplicate("src/Bar.java", 1, 20)))));
+        issues.put(bar, Collections.singletonList(issue(project, bar, BUG_RULE, "NPE", 12)));
+        byte[] data = IssueSnapshotStore.write(issues, Collections.emptyMap(), null, VirtualFile::getName);
+
+        filesByPath.remove(foo.getName());
+        IssueSnapshotStore.Snapshot snapshot = IssueSnapshotStore.read(project, data, filesByPath::get);
+
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.issueCount);
+        assertEquals(Collections.singleton(bar), snapshot.issues.keySet());
+        assertEquals("NPE", snapshot.issues.get(bar).get(0).getMsg());
+    }
+
+    @Test
+    public void rejectsCorruptedData() throws Exception {
+        byte[] data = IssueSnapshotStore.write(
+                Collections.singletonMap(foo, Collections.singletonList(issue(project, foo, BUG_RULE, "NPE", 3))), Collections.emptyMap(), null, VirtualFile::getName);
+        Function<String, VirtualFile> fileOf = filesByPath::get;
+
+        byte[] corrupted = data.clone();
+        corrupted[data.length / 2] ^= 0x10;
+        assertNull(IssueSnapshotStore.read(project, corrupted, fileOf));
+        assertNull(IssueSnapshotStore.read(project, Arrays.copyOf(data, data.length - 1), fileOf));
+        assertNull(IssueSnapshotStore.read(project, new byte[8], fileOf));
+        assertNotNull(IssueSnapshotStore.read(project, data, fileOf));
+    }
+
+    @Test
+    public void rejectsOtherFormatVersion() throws Exception {
+        byte[] data = IssueSnapshotStore.write(
+                Collections.singletonMap(foo, Collections.singletonList(issue(project, foo, BUG_RULE, "NPE", 3))), Collections.emptyMap(), null, VirtualFile::getName);
+        Function<String, VirtualFile> fileOf = filesByPath::get;
+
+        // 校验和正确但版本号不同
+        ByteBuffer buffer = ByteBuffer.wrap(data.clone());
+        buffer.putInt(4, buffer.getInt(4) - 1);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, data.length - 8);
+        buffer.putLong(data.length - 8, crc.getValue());
+        assertNull(IssueSnapshotStore.read(project, buffer.array(), fileOf));
+
+        buffer.putInt(4, buffer.getInt(4) + 1);
+        buffer.putInt(0, 0);
+        crc.reset();
+        crc.update(buffer.array(), 0, data.length - 8);
+        buffer.putLong(data.length - 8, crc.getValue());
+        assertNull(IssueSnapshotStore.read(project, buffer.array(), fileOf));
+    }
+
+    @Test
+    public void restoresAnalyzedTimeStamp() throws Exception {
+        Issue issue = issue(project, foo, BUG_RULE, "NPE", 3);
+        issue.setAnalyzedTimeStamp(foo.getTimeStamp() - 1000);
+
+        IssueSnapshotStore.Snapshot snapshot = roundTrip(Collections.singletonMap(foo, Collections.singletonList(issue)), Collections.emptyMap(), null);
+
+        // 恢复时使用分析时的时间戳而不是文件当前的时间戳, 之后修改过的文件不再按报告中的行号定位
+        AbstractIssue restored = snapshot.issues.get(foo).get(0);
+        assertEquals(foo.getTimeStamp() - 1000, restored.getAnalyzedTimeStamp());
+        IssueStore store = new IssueStore(project);
+        store.addAll(foo, snapshot.issues.get(foo));
+        assertEquals(foo.getTimeStamp() - 1000, store.asMap().get(foo).get(0).getAnalyzedTimeStamp());
+    }
+
+    @Test
+    public void benchmarkLoadingLargeSnapshot() throws Exception {
+        Map<VirtualFile, List<AbstractIssue>> issues = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            VirtualFile file = new LightVirtualFile("File" + i + ".java");
+            filesByPath.put(file.getName(), file);
+            List<AbstractIssue> issueList = new ArrayList<>(50);
+            for (int j = 0; j < 50; j++) {
+                issueList.add(issue(project, file, j % 2 == 0 ? BUG_RULE : SMELL_RULE, "Message " + (j % 20), j + 1));
+            }
+            issues.put(file, issueList);
+        }
+        byte[] data = IssueSnapshotStore.write(issues, Collections.emptyMap(), null, VirtualFile::getName);
+
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            IssueSnapshotStore.Snapshot snapshot = IssueSnapshotStore.read(project, data, filesByPath::get);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            assertNotNull(snapshot);
+            assertEquals(50_000, snapshot.issueCount);
+        }
+        System.out.printf("Loaded 50000 issues (%d bytes) in %dms%n", data.length, bestNanos / 1_000_000);
+        assertTrue("Loading 50000 issues took " + bestNanos / 1_000_000 + "ms", bestNanos < 5_000_000_000L);
+    }
+
+    private IssueSnapshotStore.Snapshot roundTrip(
+            Map<VirtualFile, List<AbstractIssue>> issues,
+            Map<VirtualFile, ReportStats> statsByFile,
+            AnalyzeScope analyzeScope) throws Exception {
+        byte[] data = IssueSnapshotStore.write(issues, statsByFile, analyzeScope, VirtualFile::getName);
+        IssueSnapshotStore.Snapshot snapshot = IssueSnapshotStore.read(project, data, filesByPath::get);
+        assertNotNull(snapshot);
+        return snapshot;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.Collections;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+public class IssueStoreRangeTrackingTest extends BasePlatformTestCase {
+    private static final RuleInfo SMELL_RULE = IssueTestUtils.rule("java", "S1481", "CODE_SMELL", Severity.MINOR);
+
+    public void testRangeOfStoredIssueSurvivesEdits() {
+        VirtualFile virtualFile = myFixture.addFileToProject("Foo.java", "class Foo {\n    void m() {\n        int unused = 1;\n    }\n}\n").getVirtualFile();
+        IssueStore store = new IssueStore(getProject());
+        store.addAll(virtualFile, Collections.singletonList(
+                new Issue(getProject(), virtualFile, SMELL_RULE, "Remove this unused local variable", Severity.MINOR, 3, 3, 8, 14)));
+        Document document = FileDocumentManager.getInstance().getDocument(virtualFile);
+
+        TextRange analyzedRange = store.asMap().get(virtualFile).get(0).getTextRange();
+        assertNotNull(analyzedRange);
+        assertEquals("int unused = 1;", document.getText(analyzedRange));
+
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> document.insertString(0, "// edited\n"));
+        PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+
+        // 文档已修改, 新的问题对象只能通过存储中的行标记找到位置
+        AbstractIssue issue = store.asMap().get(virtualFile).get(0);
+        TextRange editedRange = issue.getTextRange();
+        assertNotNull(editedRange);
+        assertEquals(analyzedRange.shiftRight("// edited\n".length()), editedRange);
+        assertEquals("int unused = 1;", document.getText(editedRange));
+        assertFalse(issue.isPossiblyFixed());
+
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> document.deleteString(editedRange.getStartOffset(), editedRange.getEndOffset()));
+        assertTrue(store.asMap().get(virtualFile).get(0).isPossiblyFixed());
+    }
+}
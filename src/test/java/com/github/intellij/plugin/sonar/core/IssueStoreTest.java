@@ -0,0 +1,240 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.intellij.openapi.editor.RangeMarker;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.github.intellij.plugin.sonar.core.IssueTestUtils.issue;
+import static com.github.intellij.plugin.sonar.core.IssueTestUtils.rule;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IssueStoreTest {
+    private static final RuleInfo BUG_RULE = rule("java", "S2259", "BUG", Severity.MAJOR);
+    private static final RuleInfo SMELL_RULE = rule("java", "S1068", "CODE_SMELL", Severity.MINOR);
+    private static final RuleInfo DUPLICATION_RULE = rule("common-java", "DuplicatedBlocks", "CODE_SMELL", Severity.MAJOR);
+
+    private Project project;
+    private IssueStore store;
+    private VirtualFile foo;
+    private VirtualFile bar;
+
+    @Before
+    public void setUp() {
+        project = IssueTestUtils.project();
+        store = new IssueStore(project);
+        foo = new LightVirtualFile("Foo.java");
+        bar = new LightVirtualFile("Bar.java");
+    }
+
+    @Test
+    public void groupsIssuesByFile() {
+        store.addAll(foo, Arrays.asList(issue(project, foo, BUG_RULE, "NPE", 3), issue(project, foo, SMELL_RULE, "Unused", 7)));
+        store.addAll(bar, Collections.singletonList(issue(project, bar, BUG_RULE, "NPE", 12)));
+
+        assertEquals(3, store.size());
+        assertEquals(2, store.fileCount());
+        Map<VirtualFile, List<AbstractIssue>> issues = store.asMap();
+        assertEquals(2, issues.size());
+
+        List<AbstractIssue> fooIssues = issues.get(foo);
+        assertEquals(2, fooIssues.size());
+        AbstractIssue first = fooIssues.get(0);
+        assertSame(foo, first.getVirtualFile());
+        assertSame(BUG_RULE, first.getRuleInfo());
+        assertEquals("NPE", first.getMsg());
+        assertEquals(Severity.MAJOR, first.getSeverity());
+        assertEquals(IssueType.BUG, first.getType());
+        assertEquals(3, first.getLineStart());
+        assertEquals(7, fooIssues.get(1).getLineStart());
+        assertSame(BUG_RULE, issues.get(bar).get(0).getRuleInfo());
+        assertEquals(12, issues.get(bar).get(0).getLineStart());
+    }
+
+    @Test
+    public void keepsDuplicatedBlocks() {
+        List<DuplicatedBlocksIssue.Duplicate> duplicates = Arrays.asList(
+                new DuplicatedBlocksIssue.Duplicate("src/Foo.java", 40, 60),
+                new DuplicatedBlocksIssue.Duplicate("src/Bar.java", 1, 21));
+        store.addAll(foo, Collections.singletonList(new DuplicatedBlocksIssue(project, foo, DUPLICATION_RULE, 10, 30, duplicates)));
+
+        int row = store.getRows(store.getFileId(foo))[0];
+        assertTrue(store.isDuplication(row));
+        AbstractIssue issue = store.getIssue(row);
+        assertTrue(issue instanceof DuplicatedBlocksIssue);
+        assertEquals(duplicates, ((DuplicatedBlocksIssue) issue).getDuplicates());
+        assertEquals(10, issue.getLineStart());
+        assertEquals(30, issue.getLineEnd());
+        assertEquals(Severity.MAJOR, issue.getSeverity());
+    }
+
+    @Test
+    public void returnsSameListForUnchangedFiles() {
+        store.addAll(foo, Collections.singletonList(issue(project, foo, BUG_RULE, "NPE", 3)));
+        store.addAll(bar, Collections.singletonList(issue(project, bar, BUG_RULE, "NPE", 12)));
+        List<AbstractIssue> fooIssues = store.asMap().get(foo);
+        List<AbstractIssue> barIssues = store.asMap().get(bar);
+
+        store.addAll(bar, Collections.singletonList(issue(project, bar, SMELL_RULE, "Unused", 20)));
+
+        Map<VirtualFile, List<AbstractIssue>> issues = store.asMap();
+        assertSame(fooIssues, issues.get(foo));
+        assertNotSame(barIssues, issues.get(bar));
+        assertEquals(2, issues.get(bar).size());
+        for (Map.Entry<VirtualFile, List<AbstractIssue>> entry : issues.entrySet()) {
+            assertSame(issues.get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    @Test
+    public void removesFile() {
+        store.addAll(foo, Collections.singletonList(issue(project, foo, BUG_RULE, "NPE", 3)));
+        store.addAll(bar, Collections.singletonList(issue(project, bar, BUG_RULE, "NPE", 12)));
+
+        store.removeFile(foo);
+
+        assertEquals(-1, store.getFileId(foo));
+        Map<VirtualFile, List<AbstractIssue>> issues = store.asMap();
+        assertEquals(1, issues.size());
+        assertFalse(issues.containsKey(foo));
+        assertNull(issues.get(foo));
+        assertEquals(Collections.singletonList(bar), new ArrayList<>(issues.keySet()));
+
+        store.addAll(foo, Collections.singletonList(issue(project, foo, SMELL_RULE, "Unused", 5)));
+        assertEquals(1, store.asMap().get(foo).size());
+        assertEquals(5, store.asMap().get(foo).get(0).getLineStart());
+    }
+
+    @Test
+    public void writesFixedStateBackToStore() {
+        Issue fixedIssue = issue(project, foo, BUG_RULE, "NPE", 3);
+        fixedIssue.setFixed(true);
+        store.addAll(foo, Arrays.asList(fixedIssue, issue(project, foo, SMELL_RULE, "Unused", 7)));
+        int[] rows = store.getRows(store.getFileId(foo));
+        assertTrue(store.isFixed(rows[0]));
+        assertFalse(store.isFixed(rows[1]));
+
+        AbstractIssue issue = store.asMap().get(foo).get(1);
+        issue.setFixed(true);
+        assertTrue(store.isFixed(rows[1]));
+        assertTrue(store.getIssue(rows[1]).isFixed());
+
+        store.setFixed(rows[0], false);
+        assertFalse(store.asMap().get(foo).get(0).isFixed());
+    }
+
+    @Test
+    public void keepsPositionStateAcrossIssueViews() {
+        store.addAll(foo, Arrays.asList(
+                issue(project, foo, BUG_RULE, "NPE", 3),
+                issue(project, foo, SMELL_RULE, "Unused", 7),
+                issue(project, foo, SMELL_RULE, "Unused", 9)));
+        int[] rows = store.getRows(store.getFileId(foo));
+        RangeMarker marker = rangeMarker(10, 20);
+        store.setRangeMarker(rows[0], marker);
+        store.setPossiblyFixed(rows[1]);
+        store.setRangeMarker(rows[2], rangeMarker(30, 30));
+
+        // 每次访问得到新的问题对象, 状态仍来自存储
+        assertNotSame(store.getIssue(rows[0]), store.getIssue(rows[0]));
+        assertFalse(store.asMap().get(foo).get(0).isPossiblyFixed());
+        assertTrue(store.asMap().get(foo).get(1).isPossiblyFixed());
+        assertTrue(store.getIssue(rows[2]).isPossiblyFixed());
+        assertTrue(store.isPossiblyFixed(rows[2]));
+        assertSame(marker, store.getRangeMarker(rows[0]));
+
+        store.removeFile(foo);
+        assertNull(store.getRangeMarker(rows[0]));
+        assertFalse(store.isPossiblyFixed(rows[1]));
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        List<AbstractIssue> issues = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            issues.add(issue(project, foo, i % 2 == 0 ? BUG_RULE : SMELL_RULE, "Message " + (i % 10), i + 1));
+        }
+        store.addAll(foo, issues);
+
+        assertEquals(3000, store.size());
+        List<AbstractIssue> stored = store.asMap().get(foo);
+        assertEquals(3000, stored.size());
+        assertEquals(3000, stored.get(2999).getLineStart());
+        assertEquals("Message 9", stored.get(2999).getMsg());
+        assertSame(SMELL_RULE, stored.get(2999).getRuleInfo());
+    }
+
+    @Test
+    public void filterIndexMatchesIssues() {
+        Issue fixedIssue = issue(project, foo, SMELL_RULE, "Unused", 7);
+        fixedIssue.setFixed(true);
+        store.addAll(foo, Arrays.asList(issue(project, foo, BUG_RULE, "NPE", 3), fixedIssue));
+        store.addAll(bar, Collections.singletonList(new DuplicatedBlocksIssue(project, bar, DUPLICATION_RULE, 1, 20)));
+
+        IssueFilterIndex index = store.createFilterIndex();
+        IssueFilterIndex expected = IssueFilterIndex.of(store.asMap());
+        assertEquals(3, index.size());
+        assertEquals(expected.ofType(IssueType.BUG), index.ofType(IssueType.BUG));
+        assertEquals(expected.ofType(IssueType.CODE_SMELL), index.ofType(IssueType.CODE_SMELL));
+        assertEquals(expected.ofSeverity(Severity.MAJOR), index.ofSeverity(Severity.MAJOR));
+        assertEquals(expected.duplications(), index.duplications());
+        assertEquals(expected.fixed(), index.fixed());
+        assertEquals(1, index.fixed().cardinality());
+        assertArrayEquals(new int[]{0, 1}, store.getRows(store.getFileId(foo)));
+    }
+
+    private static RangeMarker rangeMarker(int startOffset, int endOffset) {
+        return (RangeMarker) Proxy.newProxyInstance(RangeMarker.class.getClassLoader(), new Class[]{RangeMarker.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "isValid":
+                    return true;
+                case "getStartOffset":
+                    return startOffset;
+                case "getEndOffset":
+                    return endOffset;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.lang.reflect.Proxy;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+
+/**
+ * 不依赖IDE环境创建问题对象
+ */
+final class IssueTestUtils {
+    private IssueTestUtils() {
+    }
+
+    /**
+     * 只用来满足非空参数的项目, 调用任何方法都会失败
+     */
+    static Project project() {
+        return (Project) Proxy.newProxyInstance(Project.class.getClassLoader(), new Class[]{Project.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "Project";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    static RuleInfo rule(String repository, String key, String type, Severity severity) {
+        return new RuleInfo(repository, key, "Rule " + key, "<p>" + key + "</p>", type, severity);
+    }
+
+    static Issue issue(Project project, VirtualFile virtualFile, RuleInfo rule, String msg, int line) {
+        return new Issue(project, virtualFile, rule, msg, rule.getSeverity(), line, line, 0, 0);
+    }
+}
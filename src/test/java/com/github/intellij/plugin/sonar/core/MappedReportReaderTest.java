@@ -0,0 +1,242 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.output.FileStructure;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportReader;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedReportReaderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File reportDir;
+    private ScannerReportWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        reportDir = temporaryFolder.newFolder("scanner-report");
+        writer = new ScannerReportWriter(reportDir);
+    }
+
+    @Test
+    public void readsComponent() {
+        writer.writeComponent(component(2, "src/main/java/Foo.java"));
+
+        MappedReportReader reader = new MappedReportReader(reportDir);
+        ScannerReport.Component component = reader.readComponent(2);
+        reader.close();
+
+        assertEquals(2, component.getRef());
+        assertEquals("src/main/java/Foo.java", component.getProjectRelativePath());
+        assertEquals("java", component.getLanguage());
+    }
+
+    @Test
+    public void failsOnMissingComponent() {
+        MappedReportReader reader = new MappedReportReader(reportDir);
+        try {
+            reader.readComponent(7);
+            fail();
+        } catch (IllegalStateException expected) {
+            // 期望抛出异常
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void readsSmallIssuesFile() {
+        List<ScannerReport.Issue> issues = issues(10, 10);
+        writer.writeComponentIssues(2, issues);
+
+        MappedReportReader reader = new MappedReportReader(reportDir);
+        assertEquals(issues, reader.readComponentIssues(2));
+        reader.close();
+    }
+
+    @Test
+    public void readsIssuesFileLargerThanInitialBuffer() {
+        List<ScannerReport.Issue> issues = issues(200, 500);
+        File file = writer.writeComponentIssues(2, issues);
+        assertTrue(file.length() > 16 * 1024 && file.length() < 256 * 1024);
+        writer.writeComponentIssues(3, issues(3, 10));
+
+        MappedReportReader reader = new MappedReportReader(reportDir);
+        assertEquals(issues, reader.readComponentIssues(2));
+        // 线程复用的缓冲区扩容后, 读取较小的文件不能残留上一个文件的内容
+        assertEquals(issues(3, 10), reader.readComponentIssues(3));
+        reader.close();
+    }
+
+    @Test
+    public void readsMappedIssuesFile() {
+        List<ScannerReport.Issue> issues = issues(2000, 500);
+        File file = writer.writeComponentIssues(2, issues);
+        assertTrue(file.length() > 256 * 1024);
+
+        MappedReportReader reader = new MappedReportReader(reportDir);
+        assertEquals(issues, reader.readComponentIssues(2));
+        reader.close();
+    }
+
+    @Test
+    public void readsDuplications() {
+        ScannerReport.Duplication duplication = ScannerReport.Duplication.newBuilder()
+                .setOriginPosition(ScannerReport.TextRange.newBuilder().setStartLine(1).setEndLine(20))
+                .addDuplicate(ScannerReport.Duplicate.newBuilder()
+                        .setOtherFileRef(3)
+                        .setRange(ScannerReport.TextRange.newBuilder().setStartLine(5).setEndLine(24)))
+                .build();
+        List<ScannerReport.Duplication> duplications = new ArrayList<>();
+        duplications.add(duplication);
+        writer.writeComponentDuplications(2, duplications);
+
+        MappedReportReader reader = new MappedReportReader(reportDir);
+        assertEquals(duplications, reader.readComponentDuplications(2));
+        reader.close();
+    }
+
+    @Test
+    public void returnsEmptyListWhenFileIsMissingOrEmpty() throws Exception {
+        assertTrue(new File(reportDir, "issues-5.pb").createNewFile());
+
+        MappedReportReader reader = new MappedReportReader(reportDir);
+        assertTrue(reader.readComponentIssues(4).isEmpty());
+        assertTrue(reader.readComponentIssues(5).isEmpty());
+        assertTrue(reader.readComponentDuplications(4).isEmpty());
+        reader.close();
+    }
+
+    @Test
+    public void directoryIsInUseUntilReaderIsClosed() throws Exception {
+        writer.writeComponentIssues(2, issues(10, 10));
+        File otherDir = temporaryFolder.newFolder("other");
+
+        MappedReportReader reader = new MappedReportReader(reportDir);
+        reader.readComponentIssues(2);
+        assertTrue(MappedReportReader.isInUse(reportDir));
+        assertTrue(MappedReportReader.isInUse(temporaryFolder.getRoot()));
+        assertFalse(MappedReportReader.isInUse(otherDir));
+
+        reader.close();
+        assertFalse(MappedReportReader.isInUse(reportDir));
+    }
+
+    @Test
+    public void fileStructureMatchesWriter() {
+        File file = writer.writeComponentIssues(9, issues(1, 1));
+        assertEquals(new FileStructure(reportDir).fileFor(FileStructure.Domain.ISSUES, 9), file);
+    }
+
+    @Test
+    public void benchmarkAgainstScannerReportReader() {
+        int componentCount = 500;
+        for (int ref = 2; ref < componentCount + 2; ref++) {
+            writer.writeComponent(component(ref, "src/main/java/Foo" + ref + ".java"));
+            // 每隔一百个文件放一个超过映射阈值的大文件
+            writer.writeComponentIssues(ref, ref % 100 == 0 ? issues(2000, 200) : issues(50, 100));
+        }
+
+        long mappedNanos = Long.MAX_VALUE;
+        long streamNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            List<ScannerReport.Issue> mapped = readWithMappedReader(componentCount);
+            mappedNanos = Math.min(mappedNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<ScannerReport.Issue> streamed = readWithScannerReportReader(componentCount);
+            streamNanos = Math.min(streamNanos, System.nanoTime() - start);
+
+            assertEquals(streamed, mapped);
+        }
+        System.out.printf("MappedReportReader: %dms, ScannerReportReader: %dms%n", mappedNanos / 1_000_000, streamNanos / 1_000_000);
+    }
+
+    private List<ScannerReport.Issue> readWithMappedReader(int componentCount) {
+        List<ScannerReport.Issue> ret = new ArrayList<>();
+        MappedReportReader reader = new MappedReportReader(reportDir);
+        try {
+            for (int ref = 2; ref < componentCount + 2; ref++) {
+                reader.readComponent(ref);
+                ret.addAll(reader.readComponentIssues(ref));
+            }
+        } finally {
+            reader.close();
+        }
+        return ret;
+    }
+
+    private List<ScannerReport.Issue> readWithScannerReportReader(int componentCount) {
+        List<ScannerReport.Issue> ret = new ArrayList<>();
+        ScannerReportReader reader = new ScannerReportReader(reportDir);
+        for (int ref = 2; ref < componentCount + 2; ref++) {
+            reader.readComponent(ref);
+            try (CloseableIterator<ScannerReport.Issue> issues = reader.readComponentIssues(ref)) {
+                issues.forEachRemaining(ret::add);
+            }
+        }
+        return ret;
+    }
+
+    private static ScannerReport.Component component(int ref, String path) {
+        return ScannerReport.Component.newBuilder()
+                .setRef(ref)
+                .setType(ScannerReport.Component.ComponentType.FILE)
+                .setProjectRelativePath(path)
+                .setLanguage("java")
+                .build();
+    }
+
+    private static List<ScannerReport.Issue> issues(int count, int messageLength) {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < messageLength; i++) {
+            message.append((char) ('a' + i % 26));
+        }
+        List<ScannerReport.Issue> issues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            issues.add(ScannerReport.Issue.newBuilder()
+                    .setRuleRepository("java")
+                    .setRuleKey("S" + i)
+                    .setMsg(i + message.toString())
+                    .setTextRange(ScannerReport.TextRange.newBuilder().setStartLine(i + 1).setEndLine(i + 1))
+                    .build());
+        }
+        return issues;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.github.intellij.plugin.sonar.api.RulesSearchResponse;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RuleCatalogTest {
+
+    @Test
+    public void findsRuleByRepositoryAndKey() {
+        RuleCatalog catalog = new RuleCatalog(Arrays.asList(
+                rule("java:S1068", null, "java", "CODE_SMELL", "MAJOR"),
+                rule("java:S2259", null, "java", "BUG", "MAJOR")));
+
+        RuleInfo ruleInfo = catalog.findRule("java", "S2259");
+        assertEquals("java", ruleInfo.getRepository());
+        assertEquals("S2259", ruleInfo.getKey());
+        assertEquals("java:S2259", ruleInfo.getFullKey());
+        assertEquals(IssueType.BUG, ruleInfo.getType());
+        assertEquals(Severity.MAJOR, ruleInfo.getSeverity());
+        assertSame(ruleInfo, catalog.findRule("java:S2259"));
+        assertEquals(2, catalog.size());
+    }
+
+    @Test
+    public void matchesKeysCaseInsensitively() {
+        RuleCatalog catalog = new RuleCatalog(Collections.singletonList(rule("squid:S00112", null, "java", "CODE_SMELL", "MAJOR")));
+
+        assertSame(catalog.findRule("squid", "S00112"), catalog.findRule("SQUID", "s00112"));
+        assertSame(catalog.findRule("squid", "S00112"), catalog.findRule("Squid:s00112"));
+    }
+
+    @Test
+    public void usesRepoFieldWhenKeyHasNoRepository() {
+        RuleCatalog catalog = new RuleCatalog(Collections.singletonList(rule("S1135", "javascript", "js", "CODE_SMELL", "INFO")));
+
+        RuleInfo ruleInfo = catalog.findRule("javascript", "S1135");
+        assertEquals("javascript:S1135", ruleInfo.getFullKey());
+        assertEquals(Severity.INFO, ruleInfo.getSeverity());
+    }
+
+    @Test
+    public void skipsRulesWithoutKeyOrRepository() {
+        RuleCatalog catalog = new RuleCatalog(Arrays.asList(
+                rule(null, "java", "java", "BUG", "MAJOR"),
+                rule("S1135", null, "java", "BUG", "MAJOR")));
+
+        assertEquals(0, catalog.size());
+        assertNull(catalog.findRule("java", "S1135"));
+    }
+
+    @Test
+    public void keepsFirstRuleWhenKeyIsRepeated() {
+        RulesSearchResponse.Rule first = rule("java:S1068", null, "java", "CODE_SMELL", "MAJOR");
+        RulesSearchResponse.Rule second = rule("java:S1068", null, "java", "CODE_SMELL", "BLOCKER");
+        RuleCatalog catalog = new RuleCatalog(Arrays.asList(first, second));
+
+        assertEquals(1, catalog.size());
+        assertEquals(Severity.MAJOR, catalog.findRule("java:S1068").getSeverity());
+    }
+
+    @Test
+    public void returnsNullForUnknownRules() {
+        RuleCatalog catalog = new RuleCatalog(Collections.singletonList(rule("java:S1068", null, "java", "CODE_SMELL", "MAJOR")));
+
+        assertNull(catalog.findRule("java", "S9999"));
+        assertNull(catalog.findRule("php", "S1068"));
+        assertNull(catalog.findRule("S1068"));
+    }
+
+    @Test
+    public void lookupCostDoesNotGrowWithCatalogSize() {
+        RuleCatalog small = catalogOf(100);
+        RuleCatalog large = catalogOf(100_000);
+        String[] repositories = new String[100];
+        String[] keys = new String[100];
+        for (int i = 0; i < keys.length; i++) {
+            repositories[i] = "Repo" + (i % 10);
+            keys[i] = "s" + i;
+        }
+
+        // 先各自预热, 再取多轮中最快的一次, 减少JIT和GC的干扰
+        long smallNanos = Long.MAX_VALUE;
+        long largeNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 10; round++) {
+            smallNanos = Math.min(smallNanos, timeLookups(small, repositories, keys));
+            largeNanos = Math.min(largeNanos, timeLookups(large, repositories, keys));
+        }
+        assertTrue("100 rules: " + smallNanos + "ns, 100000 rules: " + largeNanos + "ns", largeNanos < smallNanos * 5);
+    }
+
+    private static RuleCatalog catalogOf(int size) {
+        List<RulesSearchResponse.Rule> rules = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rules.add(rule("repo" + (i % 10) + ":S" + i, null, "java", "CODE_SMELL", "MAJOR"));
+        }
+        RuleCatalog catalog = new RuleCatalog(rules);
+        assertEquals(size, catalog.size());
+        return catalog;
+    }
+
+    private static long timeLookups(RuleCatalog catalog, String[] repositories, String[] keys) {
+        long start = System.nanoTime();
+        for (int n = 0; n < 2_000; n++) {
+            for (int i = 0; i < keys.length; i++) {
+                assertNotNull(catalog.findRule(repositories[i], keys[i]));
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    static RulesSearchResponse.Rule rule(String key, String repo, String lang, String type, String severity) {
+        RulesSearchResponse.Rule rule = new RulesSearchResponse.Rule();
+        rule.setKey(key);
+        rule.setRepo(repo);
+        rule.setLang(lang);
+        rule.setName("Rule " + key);
+        rule.setHtmlDesc("<p>" + key + "</p>");
+        rule.setType(type);
+        rule.setSeverity(severity);
+        return rule;
+    }
+}
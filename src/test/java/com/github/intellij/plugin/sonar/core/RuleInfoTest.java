@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.core;
+
+import java.util.Arrays;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.testFramework.LightVirtualFile;
+import org.junit.Test;
+
+import static com.github.intellij.plugin.sonar.core.RuleCatalogTest.rule;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RuleInfoTest {
+
+    @Test
+    public void derivesKeyTypeAndSeverity() {
+        RuleInfo ruleInfo = new RuleInfo("java", "S2259", "Null pointers should not be dereferenced", "<p>desc</p>", "BUG", Severity.BLOCKER);
+
+        assertEquals("java:S2259", ruleInfo.getFullKey());
+        assertEquals("BUG", ruleInfo.getTypeName());
+        assertEquals(IssueType.BUG, ruleInfo.getType());
+        assertEquals(Severity.BLOCKER, ruleInfo.getSeverity());
+    }
+
+    @Test
+    public void keepsUnsupportedTypeName() {
+        RuleInfo ruleInfo = new RuleInfo("java", "S0000", null, null, "EXTERNAL", null);
+
+        assertEquals("EXTERNAL", ruleInfo.getTypeName());
+        assertNull(ruleInfo.getType());
+        assertNull(ruleInfo.getSeverity());
+    }
+
+    @Test
+    public void parsesSeverityAndType() {
+        assertEquals(Severity.CRITICAL, Severity.of("critical"));
+        assertEquals(Severity.INFO, Severity.of("INFO"));
+        assertNull(Severity.of("TRIVIAL"));
+        assertNull(Severity.of(null));
+
+        assertEquals(IssueType.SECURITY_HOTSPOT, IssueType.of("SECURITY_HOTSPOT"));
+        assertNull(IssueType.of("code_smell"));
+        assertNull(IssueType.of(null));
+    }
+
+    @Test
+    public void issuesOfSameRuleShareMetadata() {
+        RuleCatalog catalog = new RuleCatalog(Arrays.asList(
+                rule("java:S1068", null, "java", "CODE_SMELL", "MAJOR"),
+                rule("common-java:DuplicatedBlocks", null, "java", "CODE_SMELL", "MINOR")));
+        Project project = IssueTestUtils.project();
+        LightVirtualFile foo = new LightVirtualFile("Foo.java");
+        LightVirtualFile bar = new LightVirtualFile("Bar.java");
+
+        AbstractIssue first = new Issue(project, foo, catalog.findRule("java", "S1068"), "Remove this unused field", Severity.MAJOR, 3, 3, 0, 10);
+        AbstractIssue second = new Issue(project, bar, catalog.findRule("JAVA:s1068"), "Remove this unused field", Severity.MAJOR, 8, 8, 4, 12);
+        assertSame(first.getRuleInfo(), second.getRuleInfo());
+        assertEquals("java", second.getRuleRepository());
+        assertEquals("S1068", second.getRuleKey());
+        assertEquals("Rule java:S1068", second.getName());
+        assertEquals(IssueType.CODE_SMELL, second.getType());
+
+        // 重复代码块问题使用规则的默认严重级别
+        AbstractIssue duplication = new DuplicatedBlocksIssue(project, foo, catalog.findRule("common-java:DuplicatedBlocks"), 1, 20);
+        assertEquals(Severity.MINOR, duplication.getSeverity());
+        assertEquals("", duplication.msg);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 Yu Junyang
+ * https://github.com/lowkeyfish
+ *
+ * This file is part of Sonar Intellij plugin.
+ *
+ * Sonar Intellij plugin is free software: you can redistribute it
+ * and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Sonar Intellij plugin is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Sonar Intellij plugin.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.github.intellij.plugin.sonar.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ScannerPoolTest {
+    private static final String PLUGINS = "java:6.3:abc:1600000000000";
+
+    @Test
+    public void reusesReturnedScanner() {
+        ScannerPool<Object> pool = new ScannerPool<>();
+        Object scanner = new Object();
+        Map<String, String> properties = properties("http://localhost:9000");
+
+        assertNull(pool.borrow(properties, PLUGINS));
+        pool.giveBack(properties, PLUGINS, scanner);
+        assertEquals(1, pool.idleCount());
+
+        assertSame(scanner, pool.borrow(properties("http://localhost:9000"), PLUGINS));
+        assertEquals(0, pool.idleCount());
+        // 借出的引擎在归还前不能再被其他分析取出
+        assertNull(pool.borrow(properties, PLUGINS));
+    }
+
+    @Test
+    public void lendsMostRecentlyReturnedScannerFirst() {
+        ScannerPool<Object> pool = new ScannerPool<>();
+        Object first = new Object();
+        Object second = new Object();
+        Map<String, String> properties = properties("http://localhost:9000");
+
+        pool.giveBack(properties, PLUGINS, first);
+        pool.giveBack(properties, PLUGINS, second);
+
+        assertSame(second, pool.borrow(properties, PLUGINS));
+        assertSame(first, pool.borrow(properties, PLUGINS));
+    }
+
+    @Test
+    public void discardsScannersStartedWithOtherProperties() {
+        ScannerPool<Object> pool = new ScannerPool<>();
+        pool.giveBack(properties("http://localhost:9000"), PLUGINS, new Object());
+
+        assertNull(pool.borrow(properties("http://sonar.example.com"), PLUGINS));
+        assertEquals(0, pool.idleCount());
+    }
+
+    @Test
+    public void discardsScannersStartedWithOtherPlugins() {
+        ScannerPool<Object> pool = new ScannerPool<>();
+        Map<String, String> properties = properties("http://localhost:9000");
+        pool.giveBack(properties, PLUGINS, new Object());
+
+        // 服务器升级插件后, 已启动的引擎仍使用旧的插件
+        assertNull(pool.borrow(properties, "java:6.4:def:1600000001000"));
+        assertEquals(0, pool.idleCount());
+    }
+
+    @Test
+    public void copiesPropertiesWhenScannerIsReturned() {
+        ScannerPool<Object> pool = new ScannerPool<>();
+        Object scanner = new Object();
+        Map<String, String> properties = properties("http://localhost:9000");
+        pool.giveBack(properties, PLUGINS, scanner);
+
+        // 调用方之后修改属性不影响已归还的引擎
+        properties.put("sonar.host.url", "http://sonar.example.com");
+
+        assertSame(scanner, pool.borrow(properties("http://localhost:9000"), PLUGINS));
+    }
+
+    @Test
+    public void clearDropsIdleScanners() {
+        ScannerPool<Object> pool = new ScannerPool<>();
+        Map<String, String> properties = properties("http://localhost:9000");
+        pool.giveBack(properties, PLUGINS, new Object());
+        pool.giveBack(properties, PLUGINS, new Object());
+
+        pool.clear();
+
+        assertEquals(0, pool.idleCount());
+        assertNull(pool.borrow(properties, PLUGINS));
+    }
+
+    private static Map<String, String> properties(String hostUrl) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("sonar.host.url", hostUrl);
+        properties.put("sonar.login", "token");
+        return properties;
+    }
+}